@@ -0,0 +1,71 @@
+package juan.beerstockapi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// GET do catálogo inteiro por HTTP, com e sem o snapshot pré-serializado. Com um cliente só,
+// o tempo médio por requisição é o custo de CPU de cliente + servidor por requisição
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BeerCatalogBenchmark {
+
+    @Param({"1000", "10000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean precomputed;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.startServer("catalog-benchmark-" + rows + "-" + precomputed, applicationContext -> {
+                },
+                "server.port=0",
+                "beerstock.metrics.enabled=false",
+                "beerstock.catalog.precomputed=" + precomputed);
+        BenchmarkContexts.insertBeers(context, rows);
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                        + "/api/v1/beers"))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] listCatalog() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+}
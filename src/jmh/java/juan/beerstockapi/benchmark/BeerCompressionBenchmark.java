@@ -0,0 +1,78 @@
+package juan.beerstockapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.enums.BeerType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// custo de CPU do gzip do catálogo em JSON por nível: é o que o Tomcat paga a cada resposta
+// (no nível 6) e o que o CatalogResponseCache paga uma vez por versão (no gzip-level).
+// O tamanho comprimido de cada nível é impresso no setup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerCompressionBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    @Param({"1", "6", "9"})
+    private int level;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        BeerType[] types = BeerType.values();
+        List<BeerDTO> beers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            beers.add(BeerDTO.builder()
+                    .id((long) i)
+                    .name("Beer " + i)
+                    .brand("Brand " + (i % 100))
+                    .max(500)
+                    .quantity(i % 100)
+                    .type(types[i % types.length])
+                    .version((long) i % 10)
+                    .reserved(i % 5)
+                    .build());
+        }
+        json = objectMapper.writeValueAsBytes(beers);
+        System.out.printf("%nsize=%d level=%d json=%d bytes gzip=%d bytes%n", size, level, json.length, gzip().length);
+    }
+
+    @Benchmark
+    public byte[] gzip() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzipStream.write(json);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,82 @@
+package juan.beerstockapi.benchmark;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
+import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.service.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// linhas inseridas por segundo com e sem batch JDBC (batchSize=1 equivale ao
+// comportamento do IDENTITY, um statement por linha)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BeerInsertBenchmark {
+
+    private static final int ROWS_PER_INVOCATION = 1000;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private BeerRepository beerRepository;
+    private BeerService beerService;
+    private long invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("insert-benchmark-" + batchSize,
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        beerRepository = context.getBean(BeerRepository.class);
+        beerService = context.getBean(BeerService.class);
+    }
+
+    // a tabela volta a ficar vazia, para que o tamanho dos índices não distorça as iterações
+    @TearDown(Level.Iteration)
+    public void deleteBeers() {
+        beerRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // caminho da importação e do insertBeers: persist de um bloco e um flush
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void insertAll() {
+        BenchmarkContexts.insertBeers(context, "Bulk " + (invocation++) + " ", ROWS_PER_INVOCATION);
+    }
+
+    // POST /api/v1/beers: uma cerveja por transação, não se beneficia do batch
+    @Benchmark
+    public BeerDTO createBeer() throws BeerAlreadyRegisteredException {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("Single " + (invocation++))
+                .build()
+                .toBeerDTO();
+        return beerService.createBeer(beerDTO);
+    }
+}
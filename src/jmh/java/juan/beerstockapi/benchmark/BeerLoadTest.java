@@ -0,0 +1,143 @@
+package juan.beerstockapi.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// teste de carga fechado: N clientes simultâneos pedindo uma página da listagem, com cada
+// conexão JDBC atrasada de propósito, como um banco remoto lento. Roda um modo por JVM, para que os dois modos
+// sejam comparados com o mesmo -Xmx:
+//   mvn -Pbenchmark test-compile exec:exec@run-load-test -Dloadtest.mode=platform
+//   mvn -Pbenchmark test-compile exec:exec@run-load-test -Dloadtest.mode=virtual
+// argumentos: modo, clientes, segundos de medição, latência do banco em ms
+public final class BeerLoadTest {
+
+    private static final int ROWS = 1_000;
+    private static final int WARMUP_SECONDS = 5;
+
+    private BeerLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "platform";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        long latencyMillis = args.length > 3 ? Long.parseLong(args[3]) : 50;
+
+        // o pool de conexões acompanha os clientes, para que o limite seja o modelo de threads
+        try (ConfigurableApplicationContext context = BenchmarkContexts.startServer("loadtest",
+                slowDataSource(latencyMillis),
+                "beerstock.web.execution=" + mode,
+                "server.port=0",
+                "server.tomcat.max-connections=" + (clients * 2),
+                "spring.datasource.hikari.maximum-pool-size=" + clients)) {
+            BenchmarkContexts.insertBeers(context, ROWS);
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/api/v1/beers?afterId=0&size=20");
+
+            ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            try {
+                run(client, uri, clients, WARMUP_SECONDS, new ArrayList<>());
+                ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+
+                List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+                long errors = run(client, uri, clients, seconds, latencies);
+
+                report(mode, clients, seconds, latencies, errors);
+            } finally {
+                clientExecutor.shutdownNow();
+            }
+        }
+    }
+
+    // mantém exatamente `clients` requisições em voo durante `seconds` segundos
+    private static long run(HttpClient client, URI uri, int clients, int seconds, List<Long> latencies) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        Semaphore inFlight = new Semaphore(clients);
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (error != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                } else {
+                    latencies.add(System.nanoTime() - start);
+                }
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(clients);
+        return errors.get();
+    }
+
+    private static void report(String mode, int clients, int seconds, List<Long> latencies, long errors) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.gc();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("mode=%s clients=%d requests=%d errors=%d throughput=%.1f req/s p50=%.1f ms p99=%.1f ms"
+                        + " peakThreads=%d heapAfterGc=%d MB maxHeap=%d MB%n",
+                mode, clients, sorted.size(), errors, sorted.size() / (double) seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99),
+                ManagementFactory.getThreadMXBean().getPeakThreadCount(),
+                heapUsed >> 20, Runtime.getRuntime().maxMemory() >> 20);
+    }
+
+    // com open-in-view, cada requisição pega uma conexão só, então a espera é uma por requisição
+    private static ApplicationContextInitializer<ConfigurableApplicationContext> slowDataSource(long latencyMillis) {
+        return context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource)) {
+                    return bean;
+                }
+                return new DelegatingDataSource((DataSource) bean) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        try {
+                            Thread.sleep(latencyMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new SQLException(e);
+                        }
+                        return super.getConnection();
+                    }
+                };
+            }
+        });
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+}
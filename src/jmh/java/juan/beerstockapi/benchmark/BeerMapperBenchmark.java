@@ -0,0 +1,55 @@
+package juan.beerstockapi.benchmark;
+
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.enums.BeerType;
+import juan.beerstockapi.mapper.BeerMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerMapperBenchmark {
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    private Beer beer;
+    private BeerDTO beerDTO;
+
+    @Setup
+    public void setUp() {
+        beerDTO = BeerDTO.builder()
+                .id(1L)
+                .name("Brahma")
+                .brand("Ambev")
+                .max(50)
+                .quantity(10)
+                .type(BeerType.LAGER)
+                .build();
+        beer = beerMapper.toModel(beerDTO);
+    }
+
+    @Benchmark
+    public BeerDTO toDTO() {
+        return beerMapper.toDTO(beer);
+    }
+
+    @Benchmark
+    public Beer toModel() {
+        return beerMapper.toModel(beerDTO);
+    }
+}
@@ -0,0 +1,82 @@
+package juan.beerstockapi.benchmark;
+
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.enums.BeerType;
+import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.service.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// increment e decrement concorrentes na mesma cerveja (SKU quente) contra o H2 embarcado;
+// limite estourado ou estoque vazio contam como operação, já que custam o mesmo update
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerServiceBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private BeerService beerService;
+    private Long hotBeerId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BeerAlreadyRegisteredException {
+        context = BenchmarkContexts.start("service-benchmark");
+        beerService = context.getBean(BeerService.class);
+        hotBeerId = beerService.createBeer(BeerDTO.builder()
+                .name("Hot SKU")
+                .brand("Ambev")
+                .max(500)
+                .quantity(250)
+                .type(BeerType.LAGER)
+                .build()).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("hotSku")
+    @GroupThreads(4)
+    public Object increment() throws BeerNotFoundException, BeerStockConflictException {
+        try {
+            return beerService.increment(hotBeerId, 1);
+        } catch (BeerStockExceededException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Group("hotSku")
+    @GroupThreads(4)
+    public Object decrement() throws BeerNotFoundException, BeerStockConflictException {
+        try {
+            return beerService.decrement(hotBeerId, 1);
+        } catch (BeerStockEmptyException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package juan.beerstockapi.benchmark;
+
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.enums.BeerType;
+import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.service.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// custo das métricas no caminho mais barato do serviço (findByName vindo do cache),
+// onde o overhead do aspect e do histograma aparece mais
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerServiceMetricsBenchmark {
+
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private ConfigurableApplicationContext context;
+    private BeerService beerService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws BeerAlreadyRegisteredException, BeerNotFoundException {
+        context = BenchmarkContexts.start("metrics-benchmark-" + metrics, "beerstock.metrics.enabled=" + metrics);
+        beerService = context.getBean(BeerService.class);
+        beerService.createBeer(BeerDTO.builder()
+                .name("Brahma")
+                .brand("Ambev")
+                .max(50)
+                .quantity(10)
+                .type(BeerType.LAGER)
+                .build());
+        beerService.findByName("Brahma");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BeerDTO cachedFindByName() throws BeerNotFoundException {
+        return beerService.findByName("Brahma");
+    }
+}
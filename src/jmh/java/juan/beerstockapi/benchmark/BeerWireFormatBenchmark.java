@@ -0,0 +1,108 @@
+package juan.beerstockapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.enums.BeerType;
+import juan.beerstockapi.protobuf.BeerProtobufReader;
+import juan.beerstockapi.protobuf.BeerProtobufWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// catálogo em JSON (o mesmo ObjectMapper do Spring MVC) contra o protobuf delimitado do
+// Accept: application/x-protobuf. O tempo sai do JMH; o tamanho dos payloads, cru e em gzip,
+// é impresso no setup de cada tamanho
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerWireFormatBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<BeerDTO> beers;
+    private byte[] json;
+    private byte[] protobuf;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        BeerType[] types = BeerType.values();
+        beers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            beers.add(BeerDTO.builder()
+                    .id((long) i)
+                    .name("Beer " + i)
+                    .brand("Brand " + (i % 100))
+                    .max(500)
+                    .quantity(i % 100)
+                    .type(types[i % types.length])
+                    .version((long) i % 10)
+                    .reserved(i % 5)
+                    .build());
+        }
+        json = serializeJson();
+        protobuf = serializeProtobuf();
+        System.out.printf("%nsize=%d json=%d bytes (gzip %d) protobuf=%d bytes (gzip %d)%n",
+                size, json.length, gzip(json).length, protobuf.length, gzip(protobuf).length);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(beers);
+    }
+
+    @Benchmark
+    public byte[] serializeProtobuf() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(size * 32);
+        BeerProtobufWriter writer = new BeerProtobufWriter(outputStream);
+        for (BeerDTO beer : beers) {
+            writer.write(beer);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public List<BeerDTO> deserializeJson() throws IOException {
+        return objectMapper.readValue(json, objectMapper.getTypeFactory().constructCollectionType(List.class, BeerDTO.class));
+    }
+
+    @Benchmark
+    public List<BeerDTO> deserializeProtobuf() throws IOException {
+        List<BeerDTO> result = new ArrayList<>(size);
+        BeerProtobufReader reader = new BeerProtobufReader(new ByteArrayInputStream(protobuf));
+        for (BeerDTO beer = reader.read(); beer != null; beer = reader.read()) {
+            result.add(beer);
+        }
+        return result;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+}
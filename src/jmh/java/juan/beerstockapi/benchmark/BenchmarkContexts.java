@@ -0,0 +1,74 @@
+package juan.beerstockapi.benchmark;
+
+import juan.beerstockapi.BeerstockApiApplication;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.enums.BeerType;
+import juan.beerstockapi.repository.BeerRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// sobe a aplicação com um H2 em memória só do benchmark; sem servidor web, a não ser no teste de carga
+final class BenchmarkContexts {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(String database, String... properties) {
+        return start(WebApplicationType.NONE, database, properties);
+    }
+
+    static ConfigurableApplicationContext startServer(String database,
+                                                      ApplicationContextInitializer<ConfigurableApplicationContext> initializer,
+                                                      String... properties) {
+        return start(WebApplicationType.SERVLET, database, properties, initializer);
+    }
+
+    @SafeVarargs
+    private static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String database, String[] properties,
+                                                        ApplicationContextInitializer<ConfigurableApplicationContext>... initializers) {
+        // o restart do devtools só lê a propriedade de sistema, e relançaria o main sem argumentos
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // argumentos de linha de comando, porque properties() só define valores padrão e
+        // o application.properties passaria por cima deles
+        List<String> args = new ArrayList<>();
+        args.add("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        args.add("--spring.main.banner-mode=off");
+        args.add("--logging.level.root=WARN");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(BeerstockApiApplication.class)
+                .web(webApplicationType)
+                .initializers(initializers)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+
+    // mesmo caminho da importação: persist em blocos, com flush em batch JDBC
+    static void insertBeers(ConfigurableApplicationContext context, int rows) {
+        insertBeers(context, "Beer ", rows);
+    }
+
+    static void insertBeers(ConfigurableApplicationContext context, String namePrefix, int rows) {
+        BeerRepository beerRepository = context.getBean(BeerRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        BeerType[] types = BeerType.values();
+        List<Beer> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Beer(null, namePrefix + i, "Brand " + (i % 100), 500, i % 100, types[i % types.length], null, null, 0));
+            if (batch.size() == INSERT_BATCH_SIZE || i == rows - 1) {
+                transactionTemplate.executeWithoutResult(status -> beerRepository.insertAll(batch));
+                batch.clear();
+            }
+        }
+    }
+}
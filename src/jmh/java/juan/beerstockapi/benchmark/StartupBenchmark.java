@@ -0,0 +1,107 @@
+package juan.beerstockapi.benchmark;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// tempo do processo novo até o primeiro GET /api/v1/beers com 200, com a JVM contada junto,
+// que é o que o autoscaler espera. Usa o jar e o arquivo CDS gerados pelo perfil startup:
+//   mvn -Pstartup package
+//   mvn -Pbenchmark test-compile exec:exec@run-startup-benchmark
+// argumentos: diretório do perfil startup, execuções por variante
+public final class StartupBenchmark {
+
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(60);
+    private static final long POLL_INTERVAL_MILLIS = 5;
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "target/startup");
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path jar;
+        try (var jars = Files.list(directory)) {
+            jar = jars.filter(path -> path.getFileName().toString().endsWith("-startup.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No startup jar in " + directory + ", run mvn -Pstartup package first"));
+        }
+        Path archive = directory.resolve("beerstock.jsa");
+
+        measure("default", jar, runs);
+        measure("lazy", jar, runs, "-Dspring.profiles.active=startup");
+        if (Files.exists(archive)) {
+            measure("lazy+cds", jar, runs, "-Dspring.profiles.active=startup",
+                    "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=error");
+        } else {
+            System.out.println("variant=lazy+cds skipped: no " + archive);
+        }
+    }
+
+    private static void measure(String variant, Path jar, int runs, String... jvmOptions) throws Exception {
+        List<Long> times = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            times.add(timeToFirstRequest(jar, jvmOptions));
+        }
+        Collections.sort(times);
+        System.out.printf("variant=%s runs=%d min=%.0f ms median=%.0f ms max=%.0f ms%n", variant, runs,
+                times.get(0) / 1_000_000.0, times.get(times.size() / 2) / 1_000_000.0,
+                times.get(times.size() - 1) / 1_000_000.0);
+    }
+
+    private static long timeToFirstRequest(Path jar, String... jvmOptions) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        Collections.addAll(command, jvmOptions);
+        Collections.addAll(command, "-jar", jar.toString(), "--server.port=" + port);
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/beers")).GET().build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            long deadline = start + START_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + " before answering");
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return System.nanoTime() - start;
+                    }
+                } catch (ConnectException e) {
+                    // ainda não está escutando
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            throw new IllegalStateException("Application did not answer within " + START_TIMEOUT);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package juan.beerstockapi.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import juan.beerstockapi.service.BeerCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    // o id de um nome só muda quando a cerveja é excluída, então pode viver bem mais
+    // que a cerveja em si, que carrega a quantidade em estoque
+    @Bean
+    public CacheManager cacheManager(@Value("${beerstock.cache.max-size}") long maxSize,
+                                     @Value("${beerstock.cache.names-ttl}") Duration namesTtl,
+                                     @Value("${beerstock.cache.beers-ttl}") Duration beersTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(BeerCache.BEER_IDS_BY_NAME, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(namesTtl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(BeerCache.BEERS_BY_ID, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(beersTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
@@ -0,0 +1,30 @@
+package juan.beerstockapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.util.zip.Deflater;
+
+// server.compression.* liga a compressão e define limite e tipos; o gzip é feito pelo filtro, que
+// deixa escolher o nível e faz o min-response-size valer também para as respostas escritas pelo Jackson
+@Configuration
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+public class CompressionConfig {
+
+    @Bean
+    public FilterRegistrationBean<CompressionThresholdFilter> compressionThresholdFilter(
+            @Value("${server.compression.min-response-size:2KB}") DataSize minResponseSize,
+            @Value("${server.compression.mime-types}") String mimeTypes,
+            @Value("${beerstock.compression.level:6}") int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("beerstock.compression.level must be between 1 and 9");
+        }
+        return new FilterRegistrationBean<>(new CompressionThresholdFilter((int) minResponseSize.toBytes(), level,
+                MimeTypeUtils.parseMimeTypes(mimeTypes)));
+    }
+}
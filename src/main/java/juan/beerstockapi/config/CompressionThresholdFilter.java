@@ -0,0 +1,317 @@
+package juan.beerstockapi.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// o gzip das respostas é feito aqui e não pelo Tomcat, que não deixa escolher o nível do Deflater
+// e só respeita min-response-size quando sabe o Content-Length no commit (o Jackson dá flush no fim
+// da escrita e a resposta sairia chunked, comprimida mesmo com 200 bytes).
+// Os primeiros min-response-size bytes ficam retidos e os flushes são ignorados: se a resposta
+// acabar antes disso, ela sai com Content-Length e sem compressão; se passar, sai em gzip no nível
+// configurado, desde que o tipo esteja em mime-types, não haja Content-Encoding (o catálogo manda o
+// próprio gzip) e o ETag não seja forte, como o Tomcat faria. O Tomcat vê o Content-Encoding e não
+// comprime de novo.
+// Respostas assíncronas (NDJSON, SSE) são liberadas quando a primeira despachada termina e o gzip
+// é fechado na despachada final.
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    private final int thresholdBytes;
+    private final int level;
+    private final List<MimeType> mimeTypes;
+
+    public CompressionThresholdFilter(int thresholdBytes, int level, List<MimeType> mimeTypes) {
+        this.thresholdBytes = thresholdBytes;
+        this.level = level;
+        this.mimeTypes = mimeTypes;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            // o response é o mesmo embrulhado na primeira despachada, passado para o startAsync
+            ThresholdResponse thresholdResponse = WebUtils.getNativeResponse(response, ThresholdResponse.class);
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                if (thresholdResponse != null && !request.isAsyncStarted()) {
+                    thresholdResponse.release(true);
+                }
+            }
+            return;
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ThresholdResponse thresholdResponse = new ThresholdResponse(response, this);
+        try {
+            filterChain.doFilter(request, thresholdResponse);
+        } finally {
+            thresholdResponse.release(!request.isAsyncStarted());
+        }
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MimeType type = MimeTypeUtils.parseMimeType(contentType);
+        return mimeTypes.stream().anyMatch(mimeType -> mimeType.equalsTypeAndSubtype(type));
+    }
+
+    private static class ThresholdResponse extends HttpServletResponseWrapper {
+
+        private final CompressionThresholdFilter filter;
+        private ThresholdOutputStream outputStream;
+        private PrintWriter writer;
+
+        ThresholdResponse(HttpServletResponse response, CompressionThresholdFilter filter) {
+            super(response);
+            this.filter = filter;
+        }
+
+        @Override
+        public synchronized ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new ThresholdOutputStream(this, super.getOutputStream(), filter);
+            }
+            return outputStream;
+        }
+
+        // sem isso, quem escreve pelo writer passaria direto para o response do Tomcat
+        @Override
+        public synchronized PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            ThresholdOutputStream stream = currentStream();
+            if (stream == null || !stream.holdsFlush()) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            ThresholdOutputStream stream = currentStream();
+            if (stream != null) {
+                stream.resetBuffer();
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            ThresholdOutputStream stream = currentStream();
+            if (stream != null) {
+                stream.reset();
+            }
+        }
+
+        // complete: a resposta terminou, então o tamanho retido é o tamanho final
+        void release(boolean complete) throws IOException {
+            flushWriter();
+            ThresholdOutputStream stream = currentStream();
+            if (stream != null) {
+                stream.release(complete);
+            }
+        }
+
+        // o encoder do writer guarda caracteres até o flush
+        private void flushWriter() {
+            PrintWriter currentWriter;
+            synchronized (this) {
+                currentWriter = writer;
+            }
+            if (currentWriter != null) {
+                currentWriter.flush();
+            }
+        }
+
+        private synchronized ThresholdOutputStream currentStream() {
+            return outputStream;
+        }
+    }
+
+    private static class ThresholdOutputStream extends ServletOutputStream {
+
+        private final HttpServletResponse response;
+        private final ServletOutputStream target;
+        private final CompressionThresholdFilter filter;
+        private final byte[] buffer;
+        private int count;
+        private boolean holding = true;
+        private boolean flushRequested;
+        private LevelGzipOutputStream gzip;
+        private OutputStream out;
+
+        ThresholdOutputStream(HttpServletResponse response, ServletOutputStream target, CompressionThresholdFilter filter) {
+            this.response = response;
+            this.target = target;
+            this.filter = filter;
+            this.buffer = new byte[filter.thresholdBytes];
+            this.out = target;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            if (holding && count < buffer.length) {
+                buffer[count++] = (byte) b;
+                return;
+            }
+            release(false);
+            out.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            if (holding && count + length <= buffer.length) {
+                System.arraycopy(bytes, offset, buffer, count, length);
+                count += length;
+                return;
+            }
+            release(false);
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (holding) {
+                flushRequested = true;
+                return;
+            }
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            release(true);
+            target.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            target.setWriteListener(writeListener);
+        }
+
+        synchronized boolean holdsFlush() {
+            if (holding) {
+                flushRequested = true;
+            }
+            return holding;
+        }
+
+        // o buffer do Tomcat foi limpo, junto com o cabeçalho gzip já escrito: recomeça o stream
+        synchronized void resetBuffer() {
+            count = 0;
+            if (gzip != null) {
+                gzip.discard();
+                startGzip();
+            }
+        }
+
+        // os headers também foram limpos, então a resposta volta a ser retida sem compressão
+        synchronized void reset() {
+            count = 0;
+            if (gzip != null) {
+                gzip.discard();
+                gzip = null;
+                out = target;
+                holding = true;
+                flushRequested = false;
+            }
+        }
+
+        synchronized void release(boolean complete) throws IOException {
+            if (holding) {
+                holding = false;
+                if (complete) {
+                    if (!response.isCommitted() && !response.containsHeader(HttpHeaders.CONTENT_LENGTH)) {
+                        response.setContentLength(count);
+                    }
+                    target.write(buffer, 0, count);
+                    return;
+                }
+                if (shouldCompress()) {
+                    response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                    response.setContentLengthLong(-1);
+                    startGzip();
+                }
+                out.write(buffer, 0, count);
+                // um flush pedido enquanto os bytes estavam retidos (um evento SSE, por exemplo) não se perde
+                if (flushRequested) {
+                    out.flush();
+                }
+            }
+            if (complete && gzip != null) {
+                gzip.finish();
+            }
+        }
+
+        private boolean shouldCompress() {
+            if (response.isCommitted() || response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+                return false;
+            }
+            String eTag = response.getHeader(HttpHeaders.ETAG);
+            return (eTag == null || eTag.startsWith("W/")) && filter.isCompressible(response.getContentType());
+        }
+
+        private void startGzip() {
+            try {
+                gzip = new LevelGzipOutputStream(target, filter.level);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not start the gzip stream", e);
+            }
+            out = gzip;
+        }
+    }
+
+    // syncFlush: um flush (linha de NDJSON, por exemplo) manda o que já foi comprimido
+    private static class LevelGzipOutputStream extends GZIPOutputStream {
+
+        LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, true);
+            def.setLevel(level);
+        }
+
+        // descarta sem fechar o stream do Tomcat
+        void discard() {
+            def.end();
+        }
+    }
+}
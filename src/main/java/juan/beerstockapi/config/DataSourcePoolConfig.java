@@ -0,0 +1,35 @@
+package juan.beerstockapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.metrics.PoolWaitMetricsTrackerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+@Configuration
+public class DataSourcePoolConfig {
+
+    public static final String SLOW_ACQUIRE_THRESHOLD = "beerstock.datasource.slow-acquire-threshold";
+
+    // o tracker precisa entrar antes do pool abrir a primeira conexão; o do Spring Boot só
+    // é instalado quando o pool ainda não tem nenhum, então o nosso passa na frente e
+    // continua publicando as mesmas métricas hikaricp.*
+    @Bean
+    public static BeanPostProcessor poolWaitMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource && ((HikariDataSource) bean).getMetricsTrackerFactory() == null) {
+                    Duration threshold = environment.getProperty(SLOW_ACQUIRE_THRESHOLD, Duration.class, Duration.ofMillis(50));
+                    ((HikariDataSource) bean).setMetricsTrackerFactory(new PoolWaitMetricsTrackerFactory(meterRegistry::getObject, threshold));
+                }
+                return bean;
+            }
+        };
+    }
+}
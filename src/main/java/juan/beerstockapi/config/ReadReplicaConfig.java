@@ -0,0 +1,82 @@
+package juan.beerstockapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.IsolationLevel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+
+// beerstock.datasource.replica.enabled=true separa as leituras num segundo pool: o primário
+// continua vindo de spring.datasource.* e a réplica de beerstock.datasource.replica.*. O que
+// roda em transação readOnly (as consultas dos repositories e os métodos de leitura do
+// BeerService) vai para a réplica; incrementos, decrementos, cadastros e remoções, para o primário.
+// As leituras que enchem caches ou levam a versão do catálogo no ETag ficam no primário
+// (ReplicaRoutingDataSource.readFromPrimary), já que a versão muda no commit do primário.
+// O schema da réplica é responsabilidade da replicação; o Hibernate só enxerga o primário.
+// Com open-in-view a conexão fica presa à requisição, então vale a rota da primeira transação dela.
+@Configuration
+@ConditionalOnProperty(name = "beerstock.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("beerstock.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${beerstock.datasource.replica.url}") String url,
+                                              @Value("${beerstock.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${beerstock.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setPoolName("beerstock-replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    // com os padrões informados o proxy não abre uma conexão só para descobri-los, o que
+    // subiria o pool (e as métricas dele) no meio da criação deste bean
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") HikariDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource));
+        dataSource.setDefaultAutoCommit(primaryDataSource.isAutoCommit());
+        dataSource.setDefaultTransactionIsolation(primaryDataSource.getTransactionIsolation() == null
+                ? Connection.TRANSACTION_READ_COMMITTED
+                : IsolationLevel.valueOf(primaryDataSource.getTransactionIsolation()).getLevelId());
+        return dataSource;
+    }
+
+    // sticky-window=PT0S desliga o read-your-writes e toda leitura vai para a réplica
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${beerstock.datasource.replica.sticky-window:PT5S}") Duration stickyWindow) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(stickyWindow));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setEnabled(!stickyWindow.isZero());
+        return registration;
+    }
+}
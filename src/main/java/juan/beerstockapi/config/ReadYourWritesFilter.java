@@ -0,0 +1,79 @@
+package juan.beerstockapi.config;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+
+// read-your-writes: toda escrita devolve um cookie com o instante até o qual as leituras do
+// mesmo cliente continuam no primário, cobrindo o atraso de replicação. O cookie é gravado
+// antes da requisição rodar, porque depois a resposta já pode ter sido enviada.
+// Só protege o próprio cliente: os caches compartilhados e o catálogo são lidos sempre no primário.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "beerstock-primary-until";
+
+    private final Duration stickyWindow;
+    private final Clock clock;
+
+    public ReadYourWritesFilter(Duration stickyWindow) {
+        this(stickyWindow, Clock.systemUTC());
+    }
+
+    ReadYourWritesFilter(Duration stickyWindow, Clock clock) {
+        this.stickyWindow = stickyWindow;
+        this.clock = clock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long now = clock.millis();
+        boolean write = isWrite(request);
+        if (write) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + stickyWindow.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stickyWindow.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        if (!write && !isSticky(request, now)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReplicaRoutingDataSource.forcePrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.clearForcePrimary();
+        }
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method) && !HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static boolean isSticky(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > now;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
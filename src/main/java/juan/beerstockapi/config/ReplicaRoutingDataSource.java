@@ -0,0 +1,61 @@
+package juan.beerstockapi.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// transações readOnly vão para a réplica, todo o resto para o primário. Só decide certo atrás de
+// um LazyConnectionDataSourceProxy: o JpaTransactionManager pede a conexão antes de marcar a
+// transação como readOnly, e o proxy adia a escolha até o primeiro statement.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    // ligado pelo ReadYourWritesFilter enquanto o cliente acabou de escrever
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public static void forcePrimary() {
+        PRIMARY_FORCED.set(Boolean.TRUE);
+    }
+
+    public static void clearForcePrimary() {
+        PRIMARY_FORCED.remove();
+    }
+
+    // leituras que enchem caches compartilhados ou levam a versão do catálogo no ETag: a versão e as
+    // invalidações andam com o commit do primário, e a réplica atrasada deixaria o dado velho preso
+    // no cache até a próxima escrita. Dentro de uma transação readOnly, vale se vier antes do
+    // primeiro statement, quando o LazyConnectionDataSourceProxy ainda não escolheu a conexão.
+    public static <T> T readFromPrimary(Supplier<T> read) {
+        if (PRIMARY_FORCED.get() != null) {
+            return read.get();
+        }
+        forcePrimary();
+        try {
+            return read.get();
+        } finally {
+            clearForcePrimary();
+        }
+    }
+
+    public static Route currentRoute() {
+        if (PRIMARY_FORCED.get() == null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+}
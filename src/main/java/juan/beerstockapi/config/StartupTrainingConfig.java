@@ -0,0 +1,53 @@
+package juan.beerstockapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+// execução de treino do arquivo CDS (mvn -Pstartup package): com beerstock.startup.exit-on-ready=true
+// a aplicação faz um GET na listagem, para que as classes da primeira requisição também entrem no
+// arquivo, e sai. A JVM, rodando com -XX:ArchiveClassesAtExit, grava as classes carregadas ao sair.
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "beerstock.startup.exit-on-ready", havingValue = "true")
+public class StartupTrainingConfig {
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> exitOnReady() {
+        return event -> {
+            ConfigurableApplicationContext context = event.getApplicationContext();
+            String port = context.getEnvironment().getProperty("local.server.port");
+            int exitCode = 0;
+            if (port != null) {
+                exitCode = firstRequest(URI.create("http://localhost:" + port + "/api/v1/beers"));
+            }
+            System.exit(exitCode == 0 ? SpringApplication.exit(context) : exitCode);
+        };
+    }
+
+    private static int firstRequest(URI uri) {
+        try {
+            HttpResponse<Void> response = HttpClient.newHttpClient()
+                    .send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding());
+            log.info("Training request to {} returned {}", uri, response.statusCode());
+            return response.statusCode() == 200 ? 0 : 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+}
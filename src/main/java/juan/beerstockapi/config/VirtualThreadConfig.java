@@ -0,0 +1,47 @@
+package juan.beerstockapi.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// beerstock.web.execution=virtual troca o pool de threads do Tomcat, e o executor das respostas
+// assíncronas como o NDJSON, por uma virtual thread por requisição. Uma requisição parada no
+// JDBC deixa de prender uma thread do pool; o limite passa a ser o pool de conexões do Hikari.
+@Configuration
+@ConditionalOnProperty(name = "beerstock.web.execution", havingValue = "virtual")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor());
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new ConcurrentTaskExecutor(virtualThreadExecutor()));
+    }
+
+    // o projeto compila para Java 17, então a fábrica do Java 21 é chamada por reflexão
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(String.format(
+                    "beerstock.web.execution=virtual needs Java 21 or newer, running on %s", Runtime.version()), e);
+        }
+    }
+}
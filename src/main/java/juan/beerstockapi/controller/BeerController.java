@@ -1,26 +1,70 @@
 package juan.beerstockapi.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import juan.beerstockapi.exception.BeerStockEmptyException;
 import lombok.AllArgsConstructor;
 import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.BeerFilterDTO;
+import juan.beerstockapi.dto.BeerImportResultDTO;
+import juan.beerstockapi.dto.BeerStatsDTO;
+import juan.beerstockapi.dto.BeerStockDTO;
+import juan.beerstockapi.dto.PointInTimeStockDTO;
 import juan.beerstockapi.dto.QuantityDTO;
+import juan.beerstockapi.dto.ReservationDTO;
+import juan.beerstockapi.dto.ReservationRequestDTO;
+import juan.beerstockapi.dto.StockMovementEntryDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.dto.StockMovementResultDTO;
+import juan.beerstockapi.dto.WarehouseStockDTO;
 import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
 import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
 import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.BeerStockUnavailableException;
+import juan.beerstockapi.exception.IdempotencyKeyReusedException;
+import juan.beerstockapi.exception.ReservationNotFoundException;
+import juan.beerstockapi.exception.ReservationsUnavailableException;
+import juan.beerstockapi.exception.StockMovementRejectedException;
+import juan.beerstockapi.exception.WarehouseAlreadyRegisteredException;
+import juan.beerstockapi.exception.WarehouseStockNotFoundException;
+import juan.beerstockapi.event.StockAlertBroadcaster;
+import juan.beerstockapi.protobuf.BeerProtobufWriter;
+import juan.beerstockapi.service.BeerImportService;
 import juan.beerstockapi.service.BeerService;
+import juan.beerstockapi.service.CatalogResponseCache;
+import juan.beerstockapi.service.IdempotencyStore;
+import juan.beerstockapi.service.ReservationService;
+import juan.beerstockapi.service.StockHistoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -28,7 +72,16 @@ import java.util.List;
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class BeerController implements BeerControllerDocs {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final BeerService beerService;
+    private final BeerImportService beerImportService;
+    private final StockAlertBroadcaster stockAlertBroadcaster;
+    private final IdempotencyStore idempotencyStore;
+    private final CatalogResponseCache catalogResponseCache;
+    private final ReservationService reservationService;
+    private final StockHistoryService stockHistoryService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -36,14 +89,147 @@ public class BeerController implements BeerControllerDocs {
         return beerService.createBeer(beerDTO);
     }
 
+    // ex.: /filter?type=STOUT&lowStockThreshold=5; os filtros chegam como query params
+    @GetMapping("/filter")
+    public List<BeerDTO> filterBeers(@Valid BeerFilterDTO filter,
+                                     @RequestParam(required = false) Long afterId,
+                                     @RequestParam(required = false) Integer size) {
+        return beerService.filter(filter, afterId, size);
+    }
+
+    // ex.: /stats?type=STOUT traz as unidades de STOUT por marca
+    @GetMapping("/stats")
+    public BeerStatsDTO beerStats(@Valid BeerFilterDTO filter) {
+        return beerService.stats(filter);
+    }
+
+    // alertas de estoque baixo / perto do máximo, empurrados conforme acontecem
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stockEvents() {
+        return stockAlertBroadcaster.subscribe();
+    }
+
+    @GetMapping("/search")
+    public List<BeerDTO> searchBeers(@RequestParam String prefix, @RequestParam(required = false) Integer limit) {
+        return beerService.searchByPrefix(prefix, limit);
+    }
+
+    // o corpo é lido direto do request, sem carregar o arquivo inteiro em memória
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public BeerImportResultDTO importCsv(InputStream body) throws IOException {
+        return beerImportService.importCsv(body);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BeerImportResultDTO importNdjson(InputStream body) throws IOException {
+        return beerImportService.importNdjson(body);
+    }
+
+    // ETag pela versão da linha. Com If-None-Match ele é conferido antes de carregar a cerveja: no cache
+    // o 304 sai sem consulta, fora dele só id e versão são lidos. Lido antes, nunca é mais novo que o corpo
     @GetMapping("/{name}")
-    public BeerDTO findByName(@PathVariable String name) throws BeerNotFoundException {
-        return beerService.findByName(name);
+    public BeerDTO findByName(@PathVariable String name, WebRequest request) throws BeerNotFoundException {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            return request.checkNotModified(weakETag(beerService.versionTag(name))) ? null : beerService.findByName(name);
+        }
+        BeerDTO beerDTO = beerService.findByName(name);
+        request.checkNotModified(weakETag(BeerService.versionTag(beerDTO)));
+        return beerDTO;
     }
 
+    // ETag pela versão do catálogo, conferido antes de consultar o banco
     @GetMapping
-    public List<BeerDTO> listBeers() {
-        return beerService.listAll();
+    public ResponseEntity<?> listBeers(@RequestParam(required = false) Long afterId, @RequestParam(required = false) Integer size,
+                                       WebRequest request) throws IOException {
+        if (afterId == null && size == null && catalogResponseCache.isEnabled()) {
+            return precomputedCatalog(request);
+        }
+        if (request.checkNotModified(weakETag(beerService.catalogVersion()))) {
+            return null;
+        }
+        if (afterId == null && size == null) {
+            return ResponseEntity.ok(beerService.listAll());
+        }
+        return ResponseEntity.ok(beerService.listPage(afterId, size));
+    }
+
+    // os bytes do snapshot vão direto para a resposta; a versão em gzip é outra representação, com outro ETag.
+    // Aqui o ETag continua forte: o Tomcat não mexe nesses bytes, já que o gzip sai pronto do snapshot
+    private ResponseEntity<byte[]> precomputedCatalog(WebRequest request) throws IOException {
+        CatalogResponseCache.Snapshot snapshot = catalogResponseCache.current();
+        boolean gzip = snapshot.getGzip() != null
+                && catalogResponseCache.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (request.checkNotModified(gzip ? snapshot.getVersion() + "-gzip" : snapshot.getVersion())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+        }
+        return response.body(snapshot.getJson());
+    }
+
+    // fraco porque o corpo pode sair comprimido pelo Tomcat (server.compression), que não comprime
+    // respostas com ETag forte; os bytes mudam com a codificação, o conteúdo não
+    private static String weakETag(String value) {
+        return "W/\"" + value + "\"";
+    }
+
+    // NDJSON: uma cerveja por linha, escrita direto do cursor do banco para a resposta
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBeers(WebRequest request) {
+        // outra representação do mesmo catálogo, então outro ETag
+        if (request.checkNotModified(weakETag("ndjson-" + beerService.catalogVersion()))) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                ObjectWriter writer = objectMapper.writerFor(BeerDTO.class)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+                beerService.streamAll(beerDTO -> {
+                    try {
+                        writer.writeValue(generator, beerDTO);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // protobuf delimitado (proto/beer.proto): sem nomes de campo repetidos e com o tipo como número,
+    // também escrito direto do cursor do banco
+    @GetMapping(produces = BeerProtobufWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamBeersProtobuf(WebRequest request) {
+        if (request.checkNotModified(weakETag("protobuf-" + beerService.catalogVersion()))) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            BeerProtobufWriter writer = new BeerProtobufWriter(outputStream);
+            try {
+                beerService.streamAll(beerDTO -> {
+                    try {
+                        writer.write(beerDTO);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(BeerProtobufWriter.MEDIA_TYPE))
+                .body(body);
     }
 
     @DeleteMapping("/{id}")
@@ -52,13 +238,101 @@ public class BeerController implements BeerControllerDocs {
         beerService.deleteById(id);
     }
 
+    // com Idempotency-Key, a retentativa de um movimento já aplicado devolve a mesma resposta sem ir ao banco
     @PatchMapping("/{id}/increment")
-    public BeerDTO increment(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO) throws BeerNotFoundException, BeerStockExceededException {
-        return beerService.increment(id, quantityDTO.getQuantity());
+    public BeerDTO increment(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO,
+                             @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws BeerNotFoundException, BeerStockExceededException, BeerStockConflictException, IdempotencyKeyReusedException {
+        try (IdempotencyStore.Claim<BeerDTO> claim = idempotencyStore.claim(idempotencyKey, List.of("increment", id, quantityDTO.getQuantity()))) {
+            return claim.isReplay() ? claim.getResult() : claim.complete(beerService.increment(id, quantityDTO.getQuantity()));
+        }
     }
     @PatchMapping("/{id}/decrement")
-    public BeerDTO decrement(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO) throws BeerNotFoundException, BeerStockEmptyException {
-        return beerService.decrement(id, quantityDTO.getQuantity());
+    public BeerDTO decrement(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO,
+                             @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws BeerNotFoundException, BeerStockEmptyException, BeerStockConflictException, IdempotencyKeyReusedException {
+        try (IdempotencyStore.Claim<BeerDTO> claim = idempotencyStore.claim(idempotencyKey, List.of("decrement", id, quantityDTO.getQuantity()))) {
+            return claim.isReplay() ? claim.getResult() : claim.complete(beerService.decrement(id, quantityDTO.getQuantity()));
+        }
     }
-}
 
+    @PostMapping("/{id}/warehouses")
+    @ResponseStatus(HttpStatus.CREATED)
+    public WarehouseStockDTO addWarehouse(@PathVariable Long id, @RequestBody @Valid WarehouseStockDTO warehouseStockDTO) throws BeerNotFoundException, WarehouseAlreadyRegisteredException {
+        return beerService.addWarehouse(id, warehouseStockDTO);
+    }
+
+    @GetMapping("/{id}/warehouses")
+    public BeerStockDTO stockByWarehouse(@PathVariable Long id) throws BeerNotFoundException {
+        return beerService.stockByWarehouse(id);
+    }
+
+    @PatchMapping("/{id}/warehouses/{warehouse}/increment")
+    public WarehouseStockDTO incrementAt(@PathVariable Long id, @PathVariable String warehouse, @RequestBody @Valid QuantityDTO quantityDTO,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws BeerNotFoundException, WarehouseStockNotFoundException, BeerStockExceededException, BeerStockConflictException, IdempotencyKeyReusedException {
+        try (IdempotencyStore.Claim<WarehouseStockDTO> claim = idempotencyStore.claim(idempotencyKey, List.of("increment", id, warehouse, quantityDTO.getQuantity()))) {
+            return claim.isReplay() ? claim.getResult() : claim.complete(beerService.incrementAt(id, warehouse, quantityDTO.getQuantity()));
+        }
+    }
+
+    @PatchMapping("/{id}/warehouses/{warehouse}/decrement")
+    public WarehouseStockDTO decrementAt(@PathVariable Long id, @PathVariable String warehouse, @RequestBody @Valid QuantityDTO quantityDTO,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws BeerNotFoundException, WarehouseStockNotFoundException, BeerStockEmptyException, BeerStockConflictException, IdempotencyKeyReusedException {
+        try (IdempotencyStore.Claim<WarehouseStockDTO> claim = idempotencyStore.claim(idempotencyKey, List.of("decrement", id, warehouse, quantityDTO.getQuantity()))) {
+            return claim.isReplay() ? claim.getResult() : claim.complete(beerService.decrementAt(id, warehouse, quantityDTO.getQuantity()));
+        }
+    }
+
+    // ex.: /1/movements?from=2024-05-01T00:00:00Z&to=2024-05-02T00:00:00Z, em ordem cronológica
+    @GetMapping("/{id}/movements")
+    public List<StockMovementEntryDTO> stockMovements(@PathVariable Long id,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                                      @RequestParam(required = false) Integer limit) throws BeerNotFoundException {
+        return stockHistoryService.movements(id, from, to, limit);
+    }
+
+    // ex.: /1/stock?at=2024-05-01T18:00:00Z
+    @GetMapping("/{id}/stock")
+    public PointInTimeStockDTO stockAt(@PathVariable Long id,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at) throws BeerNotFoundException {
+        return stockHistoryService.stockAt(id, at);
+    }
+
+    // checkout: reserva as unidades até o pagamento e depois confirma ou libera
+    @PostMapping("/{id}/reservations")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ReservationDTO reserve(@PathVariable Long id, @RequestBody @Valid ReservationRequestDTO reservationRequestDTO,
+                                  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws BeerNotFoundException, BeerStockUnavailableException, ReservationsUnavailableException, IdempotencyKeyReusedException {
+        try (IdempotencyStore.Claim<ReservationDTO> claim = idempotencyStore.claim(idempotencyKey, List.of("reserve", id, reservationRequestDTO))) {
+            return claim.isReplay() ? claim.getResult() : claim.complete(reservationService.reserve(id, reservationRequestDTO));
+        }
+    }
+
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public BeerDTO confirmReservation(@PathVariable Long reservationId,
+                                      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws ReservationNotFoundException, IdempotencyKeyReusedException {
+        try (IdempotencyStore.Claim<BeerDTO> claim = idempotencyStore.claim(idempotencyKey, List.of("confirm", reservationId))) {
+            return claim.isReplay() ? claim.getResult() : claim.complete(reservationService.confirm(reservationId));
+        }
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void releaseReservation(@PathVariable Long reservationId) throws ReservationNotFoundException {
+        reservationService.release(reservationId);
+    }
+
+    @PostMapping("/stock-movements")
+    public List<StockMovementResultDTO> applyStockMovements(@RequestBody @Valid StockMovementRequestDTO stockMovementRequestDTO,
+                                                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) throws StockMovementRejectedException, IdempotencyKeyReusedException {
+        try (IdempotencyStore.Claim<List<StockMovementResultDTO>> claim = idempotencyStore.claim(idempotencyKey, List.of("stock-movements", stockMovementRequestDTO))) {
+            return claim.isReplay() ? claim.getResult() : claim.complete(beerService.applyStockMovements(stockMovementRequestDTO));
+        }
+    }
+
+    // devolve o resultado de cada movimento também quando o lote inteiro é desfeito
+    @ExceptionHandler(StockMovementRejectedException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public List<StockMovementResultDTO> handleStockMovementRejected(StockMovementRejectedException e) {
+        return e.getResults();
+    }
+}
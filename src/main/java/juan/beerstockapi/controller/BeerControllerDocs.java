@@ -5,14 +5,38 @@ import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.BeerFilterDTO;
+import juan.beerstockapi.dto.BeerImportResultDTO;
+import juan.beerstockapi.dto.BeerStatsDTO;
+import juan.beerstockapi.dto.BeerStockDTO;
+import juan.beerstockapi.dto.PointInTimeStockDTO;
 import juan.beerstockapi.dto.QuantityDTO;
+import juan.beerstockapi.dto.ReservationDTO;
+import juan.beerstockapi.dto.ReservationRequestDTO;
+import juan.beerstockapi.dto.StockMovementEntryDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.dto.StockMovementResultDTO;
+import juan.beerstockapi.dto.WarehouseStockDTO;
 import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
 import juan.beerstockapi.exception.BeerNotFoundException;
 import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.BeerStockUnavailableException;
+import juan.beerstockapi.exception.IdempotencyKeyReusedException;
+import juan.beerstockapi.exception.ReservationNotFoundException;
+import juan.beerstockapi.exception.ReservationsUnavailableException;
+import juan.beerstockapi.exception.StockMovementRejectedException;
+import juan.beerstockapi.exception.WarehouseAlreadyRegisteredException;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 
 @Api("Manages beer stock")
@@ -25,18 +49,72 @@ public interface BeerControllerDocs {
     })
     BeerDTO createBeer(BeerDTO beerDTO) throws BeerAlreadyRegisteredException;
 
+    @ApiOperation(value = "Imports beers from a CSV upload with a header row")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Number of imported and rejected rows, with the reason for each rejected row")
+    })
+    BeerImportResultDTO importCsv(InputStream body) throws IOException;
+
+    @ApiOperation(value = "Imports beers from a newline delimited JSON upload")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Number of imported and rejected rows, with the reason for each rejected row")
+    })
+    BeerImportResultDTO importNdjson(InputStream body) throws IOException;
+
     @ApiOperation(value = "Returns beer found by a given name")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success beer found in the system"),
+            @ApiResponse(code = 304, message = "Beer unchanged since the ETag given in If-None-Match"),
             @ApiResponse(code = 404, message = "Beer with given name not found.")
     })
-    BeerDTO findByName(@PathVariable String name) throws BeerNotFoundException;
+    BeerDTO findByName(@PathVariable String name, WebRequest request) throws BeerNotFoundException;
 
-    @ApiOperation(value = "Returns a list of all beers registered in the system")
+    @ApiOperation(value = "Returns a list of all beers registered in the system, or a page of it when afterId or size is given", response = BeerDTO.class, responseContainer = "List")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "List of all beers registered in the system"),
+            @ApiResponse(code = 304, message = "Catalog unchanged since the ETag given in If-None-Match"),
+    })
+    ResponseEntity<?> listBeers(Long afterId, Integer size, WebRequest request) throws IOException;
+
+    @ApiOperation(value = "Returns a page of beers matching type, brand and quantity filters")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Beers matching every given filter, ordered by id"),
+            @ApiResponse(code = 400, message = "Unknown beer type or negative quantity filter.")
+    })
+    List<BeerDTO> filterBeers(BeerFilterDTO filter, Long afterId, Integer size);
+
+    @ApiOperation(value = "Returns beer, unit and capacity totals per beer type and per brand")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Totals computed in the database over the beers matching the filters"),
+            @ApiResponse(code = 400, message = "Unknown beer type or negative quantity filter.")
+    })
+    BeerStatsDTO beerStats(BeerFilterDTO filter);
+
+    @ApiOperation(value = "Streams low-stock and near-capacity alerts as server-sent events")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "stock-alert events when a beer changes stock level, dropped events when alerts were discarded for a slow client"),
     })
-    List<BeerDTO> listBeers();
+    SseEmitter stockEvents();
+
+    @ApiOperation(value = "Returns beers whose name starts with the given prefix, ignoring case and accents")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Up to limit beers ordered by name"),
+    })
+    List<BeerDTO> searchBeers(String prefix, Integer limit);
+
+    @ApiOperation(value = "Streams all beers registered in the system as newline delimited JSON")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "One beer per line, read straight from the database cursor"),
+            @ApiResponse(code = 304, message = "Catalog unchanged since the ETag given in If-None-Match"),
+    })
+    ResponseEntity<StreamingResponseBody> streamBeers(WebRequest request);
+
+    @ApiOperation(value = "Streams all beers registered in the system as length-delimited protobuf messages (proto/beer.proto)")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "One Beer message per beer, each preceded by its varint length"),
+            @ApiResponse(code = 304, message = "Catalog unchanged since the ETag given in If-None-Match"),
+    })
+    ResponseEntity<StreamingResponseBody> streamBeersProtobuf(WebRequest request);
 
     @ApiOperation(value = "Delete a beer found by a given valid Id")
     @ApiResponses(value = {
@@ -44,4 +122,66 @@ public interface BeerControllerDocs {
             @ApiResponse(code = 404, message = "Beer with given id not found.")
     })
     void deleteById(@PathVariable Long id) throws BeerNotFoundException;
+
+    @ApiOperation(value = "Registers the stock of a beer in another warehouse")
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "Warehouse stock created"),
+            @ApiResponse(code = 400, message = "Missing required fields, wrong field range value or warehouse already registered for the beer."),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    WarehouseStockDTO addWarehouse(@PathVariable Long id, WarehouseStockDTO warehouseStockDTO) throws BeerNotFoundException, WarehouseAlreadyRegisteredException;
+
+    @ApiOperation(value = "Returns the stock of a beer in each warehouse and its total")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Main warehouse first, then the others by name"),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    BeerStockDTO stockByWarehouse(@PathVariable Long id) throws BeerNotFoundException;
+
+    @ApiOperation(value = "Returns the stock movements of a beer after from and up to to (inclusive), oldest first")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Up to limit movements with their delta and time"),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    List<StockMovementEntryDTO> stockMovements(@PathVariable Long id, Instant from, Instant to, Integer limit) throws BeerNotFoundException;
+
+    @ApiOperation(value = "Returns the stock of a beer at a past instant")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Quantity rebuilt from the latest snapshot before the instant plus the movements after it"),
+            @ApiResponse(code = 404, message = "Beer with given id not found.")
+    })
+    PointInTimeStockDTO stockAt(@PathVariable Long id, Instant at) throws BeerNotFoundException;
+
+    @ApiOperation(value = "Holds units of a beer for a checkout until the reservation is confirmed, released or expires")
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "Reservation created with its expiration time"),
+            @ApiResponse(code = 400, message = "Missing required fields, wrong field range value or not enough available units."),
+            @ApiResponse(code = 404, message = "Beer with given id not found."),
+            @ApiResponse(code = 409, message = "Reservations are not available in the configured stock mode."),
+            @ApiResponse(code = 422, message = "Idempotency-Key already used for a different reservation")
+    })
+    ReservationDTO reserve(@PathVariable Long id, ReservationRequestDTO reservationRequestDTO, String idempotencyKey) throws BeerNotFoundException, BeerStockUnavailableException, ReservationsUnavailableException, IdempotencyKeyReusedException;
+
+    @ApiOperation(value = "Takes the reserved units out of the stock")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Beer with the reserved units removed from its quantity"),
+            @ApiResponse(code = 404, message = "Reservation not found, already confirmed, released or expired."),
+            @ApiResponse(code = 422, message = "Idempotency-Key already used for a different request")
+    })
+    BeerDTO confirmReservation(@PathVariable Long reservationId, String idempotencyKey) throws ReservationNotFoundException, IdempotencyKeyReusedException;
+
+    @ApiOperation(value = "Gives the reserved units back to the available stock")
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "Reservation released"),
+            @ApiResponse(code = 404, message = "Reservation not found, already confirmed, released or expired.")
+    })
+    void releaseReservation(@PathVariable Long reservationId) throws ReservationNotFoundException;
+
+    @ApiOperation(value = "Applies a batch of stock movements in a single transaction")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Result of each stock movement of the batch"),
+            @ApiResponse(code = 400, message = "Missing required fields, wrong field range value or batch rolled back in all or nothing mode."),
+            @ApiResponse(code = 422, message = "Idempotency-Key already used for a different batch")
+    })
+    List<StockMovementResultDTO> applyStockMovements(StockMovementRequestDTO stockMovementRequestDTO, String idempotencyKey) throws StockMovementRejectedException, IdempotencyKeyReusedException;
 }
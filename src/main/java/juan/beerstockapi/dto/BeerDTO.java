@@ -1,5 +1,6 @@
 package juan.beerstockapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -39,4 +40,19 @@ public class BeerDTO {
     @Enumerated(EnumType.STRING)
     @NotNull
     private BeerType type;
+
+    // muda a cada escrita na cerveja; é a base do ETag e não é aceita no corpo das requisições
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    // unidades presas em reservas; só mudam pelos endpoints de reserva, o mapper ignora o valor recebido
+    private Integer reserved;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Integer getAvailable() {
+        if (quantity == null) {
+            return null;
+        }
+        return reserved == null ? quantity : quantity - reserved;
+    }
 }
@@ -0,0 +1,31 @@
+package juan.beerstockapi.dto;
+
+import juan.beerstockapi.enums.BeerType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+
+// filtros opcionais, recebidos como query params; os que vierem nulos são ignorados
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerFilterDTO {
+
+    private BeerType type;
+
+    private String brand;
+
+    @Min(0)
+    private Integer minQuantity;
+
+    @Min(0)
+    private Integer maxQuantity;
+
+    // cervejas com quantidade menor ou igual ao limite
+    @Min(0)
+    private Integer lowStockThreshold;
+}
@@ -0,0 +1,19 @@
+package juan.beerstockapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerImportErrorDTO {
+
+    private Long row;
+
+    private String name;
+
+    private String message;
+}
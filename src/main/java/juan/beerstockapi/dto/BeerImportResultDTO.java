@@ -0,0 +1,24 @@
+package juan.beerstockapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerImportResultDTO {
+
+    private Long imported;
+
+    private Long rejected;
+
+    // só as primeiras linhas rejeitadas são listadas; errorsTruncated indica que há mais
+    private List<BeerImportErrorDTO> errors;
+
+    private Boolean errorsTruncated;
+}
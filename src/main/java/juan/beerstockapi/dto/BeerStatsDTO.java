@@ -0,0 +1,19 @@
+package juan.beerstockapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerStatsDTO {
+
+    private List<BeerTotalDTO> byType;
+
+    private List<BeerTotalDTO> byBrand;
+}
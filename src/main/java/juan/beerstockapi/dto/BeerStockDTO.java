@@ -0,0 +1,24 @@
+package juan.beerstockapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerStockDTO {
+
+    private Long id;
+
+    private String name;
+
+    // soma de todos os depósitos, inclusive o principal
+    private Integer total;
+
+    private List<WarehouseStockDTO> warehouses;
+}
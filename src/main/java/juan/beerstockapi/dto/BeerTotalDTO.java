@@ -0,0 +1,22 @@
+package juan.beerstockapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BeerTotalDTO {
+
+    // valor do agrupamento: o tipo ou a marca
+    private String group;
+
+    private Long beers;
+
+    private Long units;
+
+    private Long capacity;
+}
@@ -0,0 +1,24 @@
+package juan.beerstockapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointInTimeStockDTO {
+
+    private Long id;
+
+    private Instant at;
+
+    private Long quantity;
+
+    // snapshot de onde a reconstrução partiu; nulo quando todo o histórico foi somado
+    private Instant snapshotAt;
+}
@@ -0,0 +1,26 @@
+package juan.beerstockapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationRequestDTO {
+
+    @NotNull
+    @Min(1)
+    @Max(100)
+    private Integer quantity;
+
+    // sem valor usa beerstock.reservations.ttl; acima de beerstock.reservations.max-ttl é limitado a ele
+    @Min(1)
+    private Long ttlSeconds;
+}
@@ -0,0 +1,28 @@
+package juan.beerstockapi.dto;
+
+import juan.beerstockapi.enums.StockLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAlertDTO {
+
+    private Long id;
+
+    private String name;
+
+    private String warehouse;
+
+    private Integer quantity;
+
+    private Integer max;
+
+    private StockLevel previousLevel;
+
+    private StockLevel level;
+}
@@ -0,0 +1,35 @@
+package juan.beerstockapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDTO {
+
+    @NotNull
+    private Long id;
+
+    // positivo incrementa, negativo decrementa
+    @NotNull
+    @Min(-100)
+    @Max(100)
+    private Integer delta;
+
+    // um movimento de zero unidades não muda o estoque, mas iria para o histórico e subiria a versão
+    @JsonIgnore
+    @AssertTrue(message = "delta must not be zero")
+    public boolean isNonZero() {
+        return delta == null || delta != 0;
+    }
+}
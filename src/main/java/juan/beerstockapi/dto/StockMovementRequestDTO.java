@@ -0,0 +1,27 @@
+package juan.beerstockapi.dto;
+
+import juan.beerstockapi.enums.StockMovementMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementRequestDTO {
+
+    @NotNull
+    private StockMovementMode mode;
+
+    @NotEmpty
+    @Size(max = 1000)
+    private List<@Valid @NotNull StockMovementDTO> movements;
+}
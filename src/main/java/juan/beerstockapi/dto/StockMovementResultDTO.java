@@ -0,0 +1,22 @@
+package juan.beerstockapi.dto;
+
+import juan.beerstockapi.enums.StockMovementStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementResultDTO {
+
+    private Long id;
+
+    private Integer delta;
+
+    private StockMovementStatus status;
+
+    private String message;
+}
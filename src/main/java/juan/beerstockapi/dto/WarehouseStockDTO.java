@@ -0,0 +1,41 @@
+package juan.beerstockapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarehouseStockDTO {
+
+    @NotNull
+    @Size(min = 1, max = 100)
+    private String warehouse;
+
+    @NotNull
+    @Min(0)
+    @Max(500)
+    private Integer max;
+
+    @NotNull
+    @Min(0)
+    @Max(100)
+    private Integer quantity;
+
+    // o depósito não pode nascer acima do limite que os updates condicionais depois respeitam
+    @JsonIgnore
+    @AssertTrue(message = "quantity must not be greater than max")
+    public boolean isQuantityWithinMax() {
+        return max == null || quantity == null || quantity <= max;
+    }
+}
@@ -13,15 +13,36 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 @Data
 @Entity
+@Table(indexes = {
+        @Index(name = "beer_search_name_idx", columnList = "search_name"),
+        @Index(name = "beer_type_brand_idx", columnList = "type, brand")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 public class Beer {
 
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // sequence com otimizador pooled: o Hibernate reserva ALLOCATION_SIZE ids por ida ao banco
+    // e, diferente de IDENTITY, não precisa executar cada insert sozinho para saber o id gerado,
+    // então os inserts entram no batch do hibernate.jdbc.batch_size
+    public static final int ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "beer_seq")
+    @SequenceGenerator(name = "beer_seq", sequenceName = "beer_seq", allocationSize = ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -40,6 +61,28 @@ public class Beer {
     @Column(nullable = false)
     private BeerType type;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // name em minúsculas e sem acentos, indexado para a busca por prefixo; é recalculado
+    // sempre que a cerveja é gravada
+    @Column(name = "search_name", nullable = false)
+    private String searchName;
+
+    // unidades presas em reservas ainda não confirmadas; o disponível é quantity - reserved.
+    // Fica na própria linha para que reservar e decrementar se confiram no mesmo update condicional.
+    @Column(nullable = false)
+    private int reserved;
 
+    @PrePersist
+    @PreUpdate
+    void updateSearchName() {
+        searchName = normalizeName(name);
+    }
 
+    public static String normalizeName(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,24 @@
+package juan.beerstockapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+// último segmento do ledger de estoque já aplicado no banco; gravado na mesma
+// transação que as quantidades, então um segmento nunca é aplicado duas vezes
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLedgerCheckpoint {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private long segment;
+}
@@ -0,0 +1,41 @@
+package juan.beerstockapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.Instant;
+
+// histórico só de inserts: cada movimento da quantidade de uma cerveja vira uma linha,
+// gravada na mesma transação que alterou o Beer. O índice (beer_id, occurred_at) atende
+// tanto a listagem por período quanto a soma dos deltas depois de um snapshot.
+@Data
+@Entity
+@Table(name = "stock_movement", indexes =
+        @Index(name = "stock_movement_beer_time_idx", columnList = "beer_id, occurred_at"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_movement_seq")
+    @SequenceGenerator(name = "stock_movement_seq", sequenceName = "stock_movement_seq", allocationSize = Beer.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "beer_id", nullable = false, updatable = false)
+    private Long beerId;
+
+    @Column(nullable = false, updatable = false)
+    private long delta;
+
+    @Column(name = "occurred_at", nullable = false, updatable = false)
+    private Instant occurredAt;
+}
@@ -0,0 +1,38 @@
+package juan.beerstockapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.Instant;
+
+// unidades de uma cerveja separadas para um checkout. A linha só existe enquanto a reserva
+// está ativa: confirmar, liberar ou expirar apaga a linha e acerta o reserved do Beer.
+@Data
+@Entity
+@Table(name = "stock_reservation")
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservation_seq")
+    @SequenceGenerator(name = "stock_reservation_seq", sequenceName = "stock_reservation_seq", allocationSize = Beer.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "beer_id", nullable = false)
+    private Long beerId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
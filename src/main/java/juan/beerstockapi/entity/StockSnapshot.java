@@ -0,0 +1,40 @@
+package juan.beerstockapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.Instant;
+
+// quantidade de uma cerveja num instante, calculada a partir do histórico de movimentos.
+// A reconstrução parte do último snapshot e só soma os movimentos posteriores a ele.
+@Data
+@Entity
+@Table(name = "stock_snapshot", indexes =
+        @Index(name = "stock_snapshot_beer_time_idx", columnList = "beer_id, taken_at"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_snapshot_seq")
+    @SequenceGenerator(name = "stock_snapshot_seq", sequenceName = "stock_snapshot_seq", allocationSize = Beer.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "beer_id", nullable = false, updatable = false)
+    private Long beerId;
+
+    @Column(nullable = false, updatable = false)
+    private long quantity;
+
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private Instant takenAt;
+}
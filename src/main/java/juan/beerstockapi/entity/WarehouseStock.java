@@ -0,0 +1,49 @@
+package juan.beerstockapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+
+// estoque de uma cerveja num depósito além do principal; o principal continua sendo a
+// quantidade do próprio Beer. Uma linha por (cerveja, depósito): o índice único é o caminho
+// dos updates por depósito, que travam só a sua linha e não disputam a linha do Beer.
+// Com beer_id na frente, o mesmo índice serve para listar e somar os depósitos de uma cerveja.
+@Data
+@Entity
+@Table(name = "warehouse_stock", uniqueConstraints =
+        @UniqueConstraint(name = "warehouse_stock_beer_warehouse_uk", columnNames = {"beer_id", "warehouse"}))
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarehouseStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "warehouse_stock_seq")
+    @SequenceGenerator(name = "warehouse_stock_seq", sequenceName = "warehouse_stock_seq", allocationSize = Beer.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "beer_id", nullable = false)
+    private Long beerId;
+
+    @Column(nullable = false, length = 100)
+    private String warehouse;
+
+    @Column(nullable = false)
+    private int max;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+}
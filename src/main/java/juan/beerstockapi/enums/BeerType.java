@@ -3,6 +3,7 @@ package juan.beerstockapi.enums;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+// o ordinal é o número do tipo no protobuf (proto/beer.proto): tipos novos só no fim
 @Getter
 @AllArgsConstructor
 public enum BeerType {
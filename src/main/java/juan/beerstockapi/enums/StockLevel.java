@@ -0,0 +1,15 @@
+package juan.beerstockapi.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum StockLevel {
+
+    LOW("Low stock"),
+    NORMAL("Normal"),
+    HIGH("Near capacity");
+
+    private final String description;
+}
@@ -0,0 +1,17 @@
+package juan.beerstockapi.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum StockMovementStatus {
+
+    APPLIED("Applied"),
+    ROLLED_BACK("Rolled back"),
+    NOT_FOUND("Not found"),
+    STOCK_EXCEEDED("Stock exceeded"),
+    STOCK_EMPTY("Stock empty");
+
+    private final String description;
+}
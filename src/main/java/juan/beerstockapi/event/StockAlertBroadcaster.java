@@ -0,0 +1,305 @@
+package juan.beerstockapi.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.dto.StockAlertDTO;
+import juan.beerstockapi.enums.StockLevel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// transforma os StockChangedEvent em alertas quando a cerveja muda de faixa (baixo, normal,
+// perto do máximo) e empurra para os assinantes do /events via SSE.
+// Quem publica só faz offer em filas limitadas, uma por assinante; o envio acontece nas threads
+// do sender. Se um assinante não acompanha, os alertas mais antigos da fila dele são descartados
+// e ele recebe um evento "dropped" com quantos perdeu, para ressincronizar pelo /filter.
+// Um envio que passa de send-timeout tira o assinante da lista e o pool ganha uma thread no lugar
+// da que ficou presa, devolvida quando o envio voltar (o timeout de escrita do Tomcat garante que volta);
+// assim um cliente travado não atrasa os alertas dos outros.
+@Slf4j
+@Component
+public class StockAlertBroadcaster {
+
+    public static final String ALERT_EVENT = "stock-alert";
+    public static final String DROPPED_EVENT = "dropped";
+    public static final String DROPPED_COUNTER = "beerstock.events.dropped";
+    public static final String STALLED_COUNTER = "beerstock.events.stalled";
+    public static final String SUBSCRIBERS_GAUGE = "beerstock.events.subscribers";
+
+    private static final Object HEARTBEAT = new Object();
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final double lowStockRatio;
+    private final double highStockRatio;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final Counter droppedCounter;
+    private final Counter stalledCounter;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor sender;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-alert-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public StockAlertBroadcaster(MeterRegistry meterRegistry,
+                                 @Value("${beerstock.events.low-stock-ratio}") double lowStockRatio,
+                                 @Value("${beerstock.events.high-stock-ratio}") double highStockRatio,
+                                 @Value("${beerstock.events.buffer-size}") int bufferSize,
+                                 @Value("${beerstock.events.sender-threads}") int senderThreads,
+                                 @Value("${beerstock.events.timeout}") Duration timeout,
+                                 @Value("${beerstock.events.send-timeout}") Duration sendTimeout,
+                                 @Value("${beerstock.events.heartbeat}") Duration heartbeatInterval) {
+        this.lowStockRatio = lowStockRatio;
+        this.highStockRatio = highStockRatio;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.droppedCounter = Counter.builder(DROPPED_COUNTER)
+                .description("Stock alerts discarded because a subscriber could not keep up")
+                .register(meterRegistry);
+        this.stalledCounter = Counter.builder(STALLED_COUNTER)
+                .description("Stock alert subscribers evicted because a send exceeded the send timeout")
+                .register(meterRegistry);
+        Gauge.builder(SUBSCRIBERS_GAUGE, subscribers, Set::size)
+                .description("Open stock alert streams")
+                .register(meterRegistry);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "stock-alert-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // sem tráfego, proxies derrubam a conexão; o heartbeat também revela assinantes que já saíram
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long stallCheckMillis = Math.max(1, sendTimeout.toMillis() / 2);
+        heartbeat.scheduleWithFixedDelay(this::evictStalledSubscribers, stallCheckMillis, stallCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        // o primeiro envio faz o commit dos headers, então o cliente sabe que já está inscrito
+        subscriber.offerHeartbeat();
+        return emitter;
+    }
+
+    // fora de transação roda na hora; dentro, só depois do commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        StockLevel previousLevel = levelOf(event.getPreviousQuantity(), event.getMax());
+        StockLevel level = levelOf(event.getQuantity(), event.getMax());
+        if (previousLevel == level) {
+            return;
+        }
+        StockAlertDTO alert = StockAlertDTO.builder()
+                .id(event.getId())
+                .name(event.getName())
+                .warehouse(event.getWarehouse())
+                .quantity(event.getQuantity())
+                .max(event.getMax())
+                .previousLevel(previousLevel)
+                .level(level)
+                .build();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(alert);
+        }
+    }
+
+    public StockLevel levelOf(int quantity, int max) {
+        if (quantity <= max * lowStockRatio) {
+            return StockLevel.LOW;
+        }
+        if (quantity >= max * highStockRatio) {
+            return StockLevel.HIGH;
+        }
+        return StockLevel.NORMAL;
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offerHeartbeat();
+        }
+    }
+
+    // não toca no emitter: os métodos dele são sincronizados e o envio preso segura o lock
+    private void evictStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long startedAt = subscriber.sendStartedAt;
+            if (startedAt != IDLE && now - startedAt > sendTimeoutNanos && subscriber.evicted.compareAndSet(false, true)) {
+                log.warn("Evicting stock alert subscriber stalled for more than {} ms", TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                subscribers.remove(subscriber);
+                stalledCounter.increment();
+                lendSenderThread();
+                // se nenhum drain estiver rodando, um novo devolve a thread emprestada
+                subscriber.scheduleDrain();
+            }
+        }
+    }
+
+    private synchronized void lendSenderThread() {
+        sender.setMaximumPoolSize(sender.getMaximumPoolSize() + 1);
+        sender.setCorePoolSize(sender.getCorePoolSize() + 1);
+    }
+
+    private synchronized void returnSenderThread() {
+        sender.setCorePoolSize(sender.getCorePoolSize() - 1);
+        sender.setMaximumPoolSize(sender.getMaximumPoolSize() - 1);
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean evicted = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long sendStartedAt = IDLE;
+        // protegido pelo lock do emitter, o mesmo que o send segura
+        private boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // callback do container: enquanto não retorna, o Tomcat não recicla o response,
+        // então esperar o lock garante que nenhum envio em andamento escreve depois disso
+        private void close() {
+            synchronized (emitter) {
+                closed = true;
+            }
+            subscribers.remove(this);
+        }
+
+        // nunca bloqueia: com a fila cheia descarta o alerta mais antigo
+        private void offer(StockAlertDTO alert) {
+            while (!queue.offer(alert)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                    droppedCounter.increment();
+                }
+            }
+            scheduleDrain();
+        }
+
+        private void offerHeartbeat() {
+            if (queue.isEmpty()) {
+                queue.offer(HEARTBEAT);
+                scheduleDrain();
+            }
+        }
+
+        // no máximo um drain por assinante, assim a ordem dos alertas se mantém
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            boolean failed = false;
+            try {
+                Object item;
+                while (!evicted.get() && (item = queue.poll()) != null) {
+                    long missed = dropped.getAndSet(0);
+                    if (missed > 0) {
+                        send(SseEmitter.event().name(DROPPED_EVENT).data(missed));
+                    }
+                    if (item == HEARTBEAT) {
+                        send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        send(SseEmitter.event().name(ALERT_EVENT).data(item, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // cliente desconectado ou emitter já encerrado
+                log.debug("Dropping stock alert subscriber: {}", e.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                failed = true;
+            } finally {
+                draining.set(false);
+            }
+            if (evicted.get()) {
+                release(failed);
+            } else if (!failed && !queue.isEmpty()) {
+                // algo pode ter chegado entre o último poll e a liberação do draining
+                scheduleDrain();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStartedAt = System.nanoTime();
+            try {
+                synchronized (emitter) {
+                    // depois do fim do request o response reciclado pode já estar atendendo outra conexão
+                    if (closed) {
+                        throw new IllegalStateException("Stock alert stream already closed");
+                    }
+                    emitter.send(event);
+                }
+            } finally {
+                sendStartedAt = IDLE;
+            }
+        }
+
+        // o envio preso voltou: devolve a thread emprestada e encerra o stream, o cliente reconecta
+        private void release(boolean failed) {
+            if (released.compareAndSet(false, true)) {
+                returnSenderThread();
+                if (!failed) {
+                    emitter.complete();
+                }
+            }
+        }
+    }
+}
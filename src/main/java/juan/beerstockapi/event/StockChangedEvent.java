@@ -0,0 +1,28 @@
+package juan.beerstockapi.event;
+
+import juan.beerstockapi.entity.Beer;
+import lombok.Value;
+
+// publicado a cada mudança de quantidade aceita: increment/decrement, cada movimento aplicado de um
+// lote, movimentos nos outros depósitos, confirmação de reserva e cadastros, que vão de 0 até a
+// quantidade inicial como no histórico. Publicado dentro de transação, só chega depois do commit.
+@Value
+public class StockChangedEvent {
+
+    Long id;
+
+    String name;
+
+    String warehouse;
+
+    int previousQuantity;
+
+    int quantity;
+
+    int max;
+
+    // a quantidade do Beer é a do depósito principal
+    public static StockChangedEvent of(Beer beer, String warehouse, int previousQuantity) {
+        return new StockChangedEvent(beer.getId(), beer.getName(), warehouse, previousQuantity, beer.getQuantity(), beer.getMax());
+    }
+}
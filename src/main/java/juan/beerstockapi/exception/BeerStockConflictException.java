@@ -0,0 +1,12 @@
+package juan.beerstockapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class BeerStockConflictException extends Exception {
+
+    public BeerStockConflictException(Long id, int attempts) {
+        super(String.format("Beer with %s ID was concurrently modified and its stock could not be updated after %s attempts", id, attempts));
+    }
+}
@@ -0,0 +1,12 @@
+package juan.beerstockapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BeerStockUnavailableException extends Exception {
+
+    public BeerStockUnavailableException(Long id, int quantityToReserve) {
+        super(String.format("Beer with id %s has less than %s units available to reserve.", id, quantityToReserve));
+    }
+}
@@ -0,0 +1,12 @@
+package juan.beerstockapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ReservationNotFoundException extends Exception {
+
+    public ReservationNotFoundException(Long id) {
+        super(String.format("Reservation with id %s not found, already confirmed, released or expired.", id));
+    }
+}
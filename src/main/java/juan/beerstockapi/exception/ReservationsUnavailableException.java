@@ -0,0 +1,12 @@
+package juan.beerstockapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ReservationsUnavailableException extends Exception {
+
+    public ReservationsUnavailableException(String stockMode) {
+        super(String.format("Stock reservations are not available when beerstock.stock.mode is %s.", stockMode));
+    }
+}
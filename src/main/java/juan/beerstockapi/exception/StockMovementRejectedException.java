@@ -0,0 +1,20 @@
+package juan.beerstockapi.exception;
+
+import juan.beerstockapi.dto.StockMovementResultDTO;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+
+@Getter
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class StockMovementRejectedException extends Exception {
+
+    private final List<StockMovementResultDTO> results;
+
+    public StockMovementRejectedException(List<StockMovementResultDTO> results) {
+        super("Stock movements were rolled back because at least one of them could not be applied.");
+        this.results = results;
+    }
+}
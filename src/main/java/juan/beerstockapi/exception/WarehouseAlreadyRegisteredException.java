@@ -0,0 +1,12 @@
+package juan.beerstockapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class WarehouseAlreadyRegisteredException extends Exception {
+
+    public WarehouseAlreadyRegisteredException(Long id, String warehouse) {
+        super(String.format("Beer with id %s already has stock registered in warehouse %s.", id, warehouse));
+    }
+}
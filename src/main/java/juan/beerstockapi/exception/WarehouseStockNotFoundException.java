@@ -0,0 +1,12 @@
+package juan.beerstockapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class WarehouseStockNotFoundException extends Exception {
+
+    public WarehouseStockNotFoundException(Long id, String warehouse) {
+        super(String.format("Beer with id %s has no stock registered in warehouse %s.", id, warehouse));
+    }
+}
@@ -0,0 +1,159 @@
+package juan.beerstockapi.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// arquivo local, só de append, com os movimentos de estoque ainda não gravados no banco.
+// É dividido em segmentos numerados: a cada flush o segmento atual é fechado e um novo
+// é aberto, e o fechado pode ser apagado depois que os deltas dele chegam ao banco.
+// Cada registro tem 16 bytes: id (long), delta (int) e o CRC32 dos 12 primeiros.
+public class StockLedger implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "stock-";
+    private static final String SEGMENT_SUFFIX = ".ledger";
+    private static final int RECORD_SIZE = 16;
+
+    private final Path directory;
+    private final boolean fsync;
+
+    private long segment;
+    private FileChannel channel;
+
+    public StockLedger(Path directory, boolean fsync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.fsync = fsync;
+    }
+
+    // soma os deltas dos segmentos posteriores ao checkpoint e abre um segmento novo;
+    // deve ser chamado uma vez, antes do primeiro append
+    public Recovery recover(long checkpoint) throws IOException {
+        Map<Long, Long> deltas = new HashMap<>();
+        Map<Long, Long> movements = new HashMap<>();
+        long lastSegment = checkpoint;
+        for (long existingSegment : segments()) {
+            lastSegment = Math.max(lastSegment, existingSegment);
+            if (existingSegment > checkpoint) {
+                read(existingSegment, deltas, movements);
+            }
+        }
+        segment = lastSegment + 1;
+        channel = open(segment);
+        return new Recovery(lastSegment, deltas, movements);
+    }
+
+    public void append(long id, int delta) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putLong(id).putInt(delta).putInt(checksum(record.array()));
+        record.flip();
+        FileChannel current;
+        synchronized (this) {
+            current = channel;
+            while (record.hasRemaining()) {
+                current.write(record);
+            }
+        }
+        // fora do lock: vários appends concorrentes aproveitam o mesmo fsync
+        if (fsync) {
+            current.force(false);
+        }
+    }
+
+    // fecha o segmento atual e devolve o número dele; quem chama deve garantir que
+    // não há append em andamento
+    public synchronized long rotate() throws IOException {
+        FileChannel closing = channel;
+        long closingSegment = segment;
+        channel = open(closingSegment + 1);
+        segment = closingSegment + 1;
+        closing.force(false);
+        closing.close();
+        return closingSegment;
+    }
+
+    public void deleteUpTo(long lastSegment) throws IOException {
+        for (long existingSegment : segments()) {
+            if (existingSegment <= lastSegment) {
+                Files.deleteIfExists(path(existingSegment));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private void read(long existingSegment, Map<Long, Long> deltas, Map<Long, Long> movements) throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(path(existingSegment)));
+        byte[] record = new byte[RECORD_SIZE];
+        // um registro incompleto ou com CRC errado só pode ser o último, escrito durante a queda,
+        // e como não foi confirmado ao cliente pode ser descartado
+        while (records.remaining() >= RECORD_SIZE) {
+            records.get(record);
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            long id = buffer.getLong();
+            int delta = buffer.getInt();
+            if (buffer.getInt() != checksum(record)) {
+                break;
+            }
+            deltas.merge(id, (long) delta, Long::sum);
+            movements.merge(id, 1L, Long::sum);
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private FileChannel open(long segmentToOpen) throws IOException {
+        return FileChannel.open(path(segmentToOpen), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path path(long segmentOfPath) {
+        return directory.resolve(SEGMENT_PREFIX + segmentOfPath + SEGMENT_SUFFIX);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, RECORD_SIZE - Integer.BYTES);
+        return (int) crc.getValue();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Recovery {
+
+        // maior segmento encontrado; vira o checkpoint depois que os deltas são aplicados
+        private final long lastSegment;
+
+        private final Map<Long, Long> deltas;
+
+        // registros por cerveja, que viram o incremento da versão
+        private final Map<Long, Long> movements;
+    }
+}
@@ -3,6 +3,7 @@ package juan.beerstockapi.mapper;
 import juan.beerstockapi.dto.BeerDTO;
 import juan.beerstockapi.entity.Beer;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 @Mapper
@@ -10,6 +11,9 @@ public interface BeerMapper {
 
     BeerMapper INSTANCE = Mappers.getMapper(BeerMapper.class);
 
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "searchName", ignore = true)
+    @Mapping(target = "reserved", ignore = true)
     Beer toModel(BeerDTO beerDTO);
 
     BeerDTO toDTO(Beer beer);
@@ -0,0 +1,114 @@
+package juan.beerstockapi.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.WarehouseAlreadyRegisteredException;
+import juan.beerstockapi.exception.WarehouseStockNotFoundException;
+import juan.beerstockapi.repository.BeerRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// mede cada operação do BeerService sem mexer no serviço. Todos os medidores são
+// registrados na criação, então o caminho quente só faz um get num mapa e o record.
+@Aspect
+@Component
+// fica por fora do @Transactional, assim o tempo do commit entra na medida
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "beerstock.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class BeerServiceMetricsAspect {
+
+    public static final String OPERATION_TIMER = "beerstock.operations";
+    public static final String EXCEPTION_COUNTER = "beerstock.exceptions";
+    public static final String STOCK_UNITS_GAUGE = "beerstock.stock.units";
+
+    private static final List<String> OPERATIONS = List.of(
+            "createBeer", "findByName", "listAll", "listPage", "filter", "stats", "searchByPrefix", "streamAll",
+            "increment", "decrement", "deleteById", "applyStockMovements",
+            "addWarehouse", "stockByWarehouse", "incrementAt", "decrementAt");
+
+    private static final List<Class<? extends Exception>> EXCEPTIONS = List.of(
+            BeerAlreadyRegisteredException.class, BeerNotFoundException.class,
+            BeerStockEmptyException.class, BeerStockExceededException.class,
+            BeerStockConflictException.class, WarehouseStockNotFoundException.class,
+            WarehouseAlreadyRegisteredException.class);
+
+    private final Map<String, Timer> successTimers = new HashMap<>();
+    private final Map<String, Timer> errorTimers = new HashMap<>();
+    private final Map<Class<?>, Counter> exceptionCounters = new HashMap<>();
+
+    @Autowired
+    public BeerServiceMetricsAspect(MeterRegistry meterRegistry, BeerRepository beerRepository) {
+        for (String operation : OPERATIONS) {
+            successTimers.put(operation, operationTimer(meterRegistry, operation, "success"));
+            errorTimers.put(operation, operationTimer(meterRegistry, operation, "error"));
+        }
+        for (Class<? extends Exception> exception : EXCEPTIONS) {
+            exceptionCounters.put(exception, Counter.builder(EXCEPTION_COUNTER)
+                    .description("Beer service operations that ended with the given exception")
+                    .tag("exception", exception.getSimpleName())
+                    .register(meterRegistry));
+        }
+        // lido a cada coleta, não a cada operação
+        Gauge.builder(STOCK_UNITS_GAUGE, beerRepository, BeerServiceMetricsAspect::sumQuantity)
+                .description("Total beer units in stock")
+                .baseUnit("units")
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * juan.beerstockapi.service.BeerService.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getName();
+        Timer successTimer = successTimers.get(operation);
+        if (successTimer == null) {
+            return joinPoint.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            errorTimers.get(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter exceptionCounter = exceptionCounters.get(e.getClass());
+            if (exceptionCounter != null) {
+                exceptionCounter.increment();
+            }
+            throw e;
+        }
+    }
+
+    private static Timer operationTimer(MeterRegistry meterRegistry, String operation, String outcome) {
+        return Timer.builder(OPERATION_TIMER)
+                .description("Latency of the beer service operations")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static double sumQuantity(BeerRepository beerRepository) {
+        try {
+            return beerRepository.sumQuantity();
+        } catch (RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+}
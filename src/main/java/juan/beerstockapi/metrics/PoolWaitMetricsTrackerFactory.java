@@ -0,0 +1,103 @@
+package juan.beerstockapi.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// mantém as métricas hikaricp.* do Micrometer (conexões ativas, ociosas, threads esperando,
+// tempo de aquisição) e avisa no log quando uma requisição espera pelo pool mais que o limite.
+// O aviso sai no máximo uma vez por WARN_INTERVAL, com quantas esperas longas houve desde o último.
+@Slf4j
+public class PoolWaitMetricsTrackerFactory implements MetricsTrackerFactory {
+
+    public static final String SLOW_ACQUIRE_COUNTER = "beerstock.datasource.slow-acquires";
+
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final long thresholdNanos;
+
+    // o registry é buscado só quando o pool sobe, depois que o contexto já criou os meters
+    public PoolWaitMetricsTrackerFactory(Supplier<MeterRegistry> meterRegistry, Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        MeterRegistry registry = meterRegistry.get();
+        IMetricsTracker delegate = new MicrometerMetricsTrackerFactory(registry).create(poolName, poolStats);
+        Counter slowAcquires = Counter.builder(SLOW_ACQUIRE_COUNTER)
+                .description("Connection acquisitions that waited longer than beerstock.datasource.slow-acquire-threshold")
+                .tag("pool", poolName)
+                .register(registry);
+        return new PoolWaitMetricsTracker(delegate, slowAcquires, poolName, poolStats);
+    }
+
+    private class PoolWaitMetricsTracker implements IMetricsTracker {
+
+        private final IMetricsTracker delegate;
+        private final Counter slowAcquires;
+        private final String poolName;
+        private final PoolStats poolStats;
+        private final AtomicLong lastWarning = new AtomicLong(System.nanoTime() - WARN_INTERVAL_NANOS);
+        private final AtomicLong slowSinceWarning = new AtomicLong();
+
+        PoolWaitMetricsTracker(IMetricsTracker delegate, Counter slowAcquires, String poolName, PoolStats poolStats) {
+            this.delegate = delegate;
+            this.slowAcquires = slowAcquires;
+            this.poolName = poolName;
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+            if (elapsedAcquiredNanos < thresholdNanos) {
+                return;
+            }
+            slowAcquires.increment();
+            long slow = slowSinceWarning.incrementAndGet();
+            long now = System.nanoTime();
+            long last = lastWarning.get();
+            if (now - last >= WARN_INTERVAL_NANOS && lastWarning.compareAndSet(last, now)) {
+                slowSinceWarning.addAndGet(-slow);
+                log.warn("Waited {} ms for a connection from pool {} ({} slow acquisitions since last warning; active {}, idle {}, waiting {}, max {})",
+                        TimeUnit.NANOSECONDS.toMillis(elapsedAcquiredNanos), poolName, slow,
+                        poolStats.getActiveConnections(), poolStats.getIdleConnections(),
+                        poolStats.getPendingThreads(), poolStats.getMaxConnections());
+            }
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            delegate.recordConnectionTimeout();
+            log.warn("Timed out waiting for a connection from pool {} (active {}, waiting {}, max {})",
+                    poolName, poolStats.getActiveConnections(), poolStats.getPendingThreads(), poolStats.getMaxConnections());
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
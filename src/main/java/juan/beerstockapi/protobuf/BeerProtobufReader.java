@@ -0,0 +1,148 @@
+package juan.beerstockapi.protobuf;
+
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.enums.BeerType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.BRAND;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.ID;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.MAX;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.NAME;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.QUANTITY;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.RESERVED;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.TYPE;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.VERSION;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.WIRE_FIXED32;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.WIRE_FIXED64;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.WIRE_LENGTH_DELIMITED;
+import static juan.beerstockapi.protobuf.BeerProtobufWriter.WIRE_VARINT;
+
+// lê a sequência escrita pelo BeerProtobufWriter, para os clientes Java que não usam o código
+// gerado do beer.proto. Campos desconhecidos são pulados, então um servidor mais novo continua
+// legível; campos ausentes valem zero, como no proto3, e um tipo desconhecido fica nulo.
+public class BeerProtobufReader {
+
+    private final InputStream inputStream;
+
+    public BeerProtobufReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    // nulo no fim do stream
+    public BeerDTO read() throws IOException {
+        int first = inputStream.read();
+        if (first == -1) {
+            return null;
+        }
+        int length = (int) readVarint(inputStream, first);
+        byte[] message = inputStream.readNBytes(length);
+        if (message.length < length) {
+            throw new EOFException("Truncated beer message");
+        }
+        return parse(message);
+    }
+
+    private static BeerDTO parse(byte[] message) throws IOException {
+        BeerDTO beerDTO = BeerDTO.builder()
+                .id(0L).max(0).quantity(0).type(BeerType.values()[0]).version(0L).reserved(0)
+                .build();
+        Cursor cursor = new Cursor(message);
+        while (cursor.position < message.length) {
+            long key = cursor.varint();
+            int field = (int) (key >>> 3);
+            int wireType = (int) (key & 0x7);
+            if (wireType == WIRE_VARINT) {
+                long value = cursor.varint();
+                switch (field) {
+                    case ID: beerDTO.setId(value); break;
+                    case MAX: beerDTO.setMax((int) value); break;
+                    case QUANTITY: beerDTO.setQuantity((int) value); break;
+                    case TYPE: beerDTO.setType(value >= 0 && value < BeerType.values().length ? BeerType.values()[(int) value] : null); break;
+                    case VERSION: beerDTO.setVersion(value); break;
+                    case RESERVED: beerDTO.setReserved((int) value); break;
+                    default: break;
+                }
+            } else if (wireType == WIRE_LENGTH_DELIMITED && field == NAME) {
+                beerDTO.setName(cursor.string());
+            } else if (wireType == WIRE_LENGTH_DELIMITED && field == BRAND) {
+                beerDTO.setBrand(cursor.string());
+            } else {
+                cursor.skip(wireType);
+            }
+        }
+        return beerDTO;
+    }
+
+    private static long readVarint(InputStream inputStream, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int current = first;
+        while ((current & 0x80) != 0) {
+            current = inputStream.read();
+            if (current == -1 || shift > 63) {
+                throw new EOFException("Malformed varint");
+            }
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private static final class Cursor {
+
+        private final byte[] bytes;
+        private int position;
+
+        Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new EOFException("Malformed varint");
+                }
+                byte current = bytes[position++];
+                value |= (long) (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String string() throws IOException {
+            int length = (int) varint();
+            if (length < 0 || position + length > bytes.length) {
+                throw new EOFException("Truncated field");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skip(int wireType) throws IOException {
+            switch (wireType) {
+                case WIRE_VARINT: varint(); break;
+                case WIRE_FIXED64: position += 8; break;
+                case WIRE_LENGTH_DELIMITED:
+                    int length = (int) varint();
+                    if (length < 0) {
+                        throw new EOFException("Truncated field");
+                    }
+                    position += length;
+                    break;
+                case WIRE_FIXED32: position += 4; break;
+                default: throw new IOException("Unsupported wire type " + wireType);
+            }
+            if (position > bytes.length) {
+                throw new EOFException("Truncated field");
+            }
+        }
+    }
+}
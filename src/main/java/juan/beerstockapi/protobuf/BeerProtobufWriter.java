@@ -0,0 +1,93 @@
+package juan.beerstockapi.protobuf;
+
+import juan.beerstockapi.dto.BeerDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// escreve BeerDTOs no formato protobuf de proto/beer.proto, sem depender da biblioteca do
+// protobuf: cada mensagem é montada num buffer reaproveitado e vai para o stream precedida do
+// tamanho. O tipo sai como o ordinal do enum; campos nulos ou zero não são escritos, como no proto3.
+// Não é thread-safe: um writer por resposta.
+public class BeerProtobufWriter {
+
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    static final int ID = 1;
+    static final int NAME = 2;
+    static final int BRAND = 3;
+    static final int MAX = 4;
+    static final int QUANTITY = 5;
+    static final int TYPE = 6;
+    static final int VERSION = 7;
+    static final int RESERVED = 8;
+
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_FIXED64 = 1;
+    static final int WIRE_LENGTH_DELIMITED = 2;
+    static final int WIRE_FIXED32 = 5;
+
+    private final OutputStream outputStream;
+    private byte[] buffer = new byte[256];
+    private int position;
+
+    public BeerProtobufWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    public void write(BeerDTO beerDTO) throws IOException {
+        position = 0;
+        writeVarintField(ID, beerDTO.getId());
+        writeStringField(NAME, beerDTO.getName());
+        writeStringField(BRAND, beerDTO.getBrand());
+        writeVarintField(MAX, beerDTO.getMax());
+        writeVarintField(QUANTITY, beerDTO.getQuantity());
+        writeVarintField(TYPE, beerDTO.getType() == null ? null : beerDTO.getType().ordinal());
+        writeVarintField(VERSION, beerDTO.getVersion());
+        writeVarintField(RESERVED, beerDTO.getReserved());
+
+        // o tamanho vai para o fim do buffer e é enviado antes da mensagem
+        int length = position;
+        writeVarint(length);
+        outputStream.write(buffer, length, position - length);
+        outputStream.write(buffer, 0, length);
+    }
+
+    private void writeVarintField(int field, Number value) {
+        if (value == null || value.longValue() == 0) {
+            return;
+        }
+        writeVarint((long) field << 3 | WIRE_VARINT);
+        writeVarint(value.longValue());
+    }
+
+    private void writeStringField(int field, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint((long) field << 3 | WIRE_LENGTH_DELIMITED);
+        writeVarint(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    // inteiros negativos ocupam 10 bytes, como o int32/int64 do protobuf
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+}
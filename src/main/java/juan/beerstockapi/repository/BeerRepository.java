@@ -1,11 +1,64 @@
 package juan.beerstockapi.repository;
 
 import juan.beerstockapi.entity.Beer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface BeerRepository extends JpaRepository<Beer, Long> {
+public interface BeerRepository extends JpaRepository<Beer, Long>, BeerRepositoryCustom {
 
     Optional<Beer> findByName(String name);
+
+    // só as duas colunas do ETag, para conferir o If-None-Match sem montar a entidade
+    @Query("select b.id as id, b.version as version from Beer b where b.name = :name")
+    Optional<BeerVersion> findVersionByName(@Param("name") String name);
+
+    // checagem de nomes repetidos em bloco, usada pela importação
+    @Query("select b.name from Beer b where b.name in :names")
+    List<String> findNamesIn(@Param("names") Collection<String> names);
+
+    // LIKE 'prefixo%' sobre a coluna normalizada: vira uma faixa do índice beer_search_name_idx.
+    // O Spring Data escapa % e _ do prefixo.
+    List<Beer> findBySearchNameStartingWithOrderBySearchNameAsc(String prefix, Pageable pageable);
+
+    // paginação por chave (seek): usa o índice da PK e não depende de offset
+    List<Beer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // unidades em todos os depósitos: o principal (beer) mais os demais (warehouse_stock)
+    @Query(value = "select (select coalesce(sum(quantity), 0) from beer) + (select coalesce(sum(quantity), 0) from warehouse_stock)",
+            nativeQuery = true)
+    long sumQuantity();
+
+    // update condicional: a checagem do limite e a escrita acontecem no mesmo statement,
+    // então incrementos concorrentes na mesma cerveja não se perdem. A versão também sobe,
+    // para que uma atualização otimista concorrente perceba a mudança.
+    @Modifying(clearAutomatically = true)
+    @Query("update Beer b set b.quantity = b.quantity + :quantity, b.version = b.version + 1 where b.id = :id and b.quantity + :quantity <= b.max and b.quantity + :quantity >= b.reserved")
+    int incrementQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // o decremento não pode consumir unidades reservadas; os dois limites valem nos dois sentidos,
+    // para que uma quantidade negativa não atravesse o outro limite
+    @Modifying(clearAutomatically = true)
+    @Query("update Beer b set b.quantity = b.quantity - :quantity, b.version = b.version + 1 where b.id = :id and b.quantity - :quantity >= b.reserved and b.quantity - :quantity <= b.max")
+    int decrementQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // reservas: a checagem do disponível e a reserva no mesmo statement, como no decremento
+    @Modifying(clearAutomatically = true)
+    @Query("update Beer b set b.reserved = b.reserved + :quantity, b.version = b.version + 1 where b.id = :id and b.quantity - b.reserved >= :quantity")
+    int reserveQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Beer b set b.reserved = b.reserved - :quantity, b.version = b.version + 1 where b.id = :id")
+    int releaseQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // a confirmação tira do estoque as unidades que já estavam separadas
+    @Modifying(clearAutomatically = true)
+    @Query("update Beer b set b.quantity = b.quantity - :quantity, b.reserved = b.reserved - :quantity, b.version = b.version + 1 where b.id = :id")
+    int confirmQuantity(@Param("id") Long id, @Param("quantity") int quantity);
 }
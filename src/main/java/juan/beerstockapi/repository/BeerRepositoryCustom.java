@@ -0,0 +1,39 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.dto.BeerTotalDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.entity.Beer;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface BeerRepositoryCustom {
+
+    // aplica os deltas num unico batch JDBC; cada posição do retorno é 1 se o
+    // movimento foi aplicado e 0 se a cerveja não existe ou o limite seria violado
+    int[] applyStockMovements(List<StockMovementDTO> movements);
+
+    // persiste cervejas novas e faz o flush, que sai como batch JDBC; em seguida limpa o
+    // contexto de persistência para que importações grandes não acumulem entidades.
+    // Precisa de uma transação ativa.
+    void insertAll(List<Beer> beers);
+
+    // soma os deltas (id -> delta) num unico batch JDBC, com os mesmos limites do
+    // applyStockMovements, e sobe a versão pelo número de movimentos de cada cerveja;
+    // devolve os ids cujo delta foi recusado
+    List<Long> addToQuantities(Map<Long, Long> deltas, Map<Long, Long> movements);
+
+    // as primeiras `limit` cervejas que atendem à specification, em ordem de id, sem a
+    // consulta de contagem que o findAll(Specification, Pageable) faria
+    List<Beer> findFirstById(Specification<Beer> specification, int limit);
+
+    // quantidade de cervejas, unidades em estoque e capacidade (soma do max) agrupadas pelo
+    // atributo informado ("type" ou "brand"), só entre as cervejas que atendem à specification
+    List<BeerTotalDTO> totalsBy(String attribute, Specification<Beer> specification);
+
+    // percorre a tabela inteira com um cursor JDBC, entregando uma cerveja por vez
+    // sem montar a lista em memória
+    void streamAll(Consumer<Beer> consumer);
+}
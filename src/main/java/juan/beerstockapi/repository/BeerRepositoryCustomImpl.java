@@ -0,0 +1,160 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.dto.BeerTotalDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.enums.BeerType;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class BeerRepositoryCustomImpl implements BeerRepositoryCustom {
+
+    private static final String APPLY_STOCK_MOVEMENT_SQL =
+            "update beer set quantity = quantity + ?, version = version + 1 where id = ? and quantity + ? >= reserved and quantity + ? <= max";
+
+    private static final String ADD_TO_QUANTITY_SQL =
+            "update beer set quantity = quantity + ?, version = version + ? where id = ? and quantity + ? >= reserved and quantity + ? <= max";
+
+    private static final String STREAM_ALL_SQL =
+            "select id, name, brand, max, quantity, type, version, search_name, reserved from beer order by id";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    @Override
+    public int[] applyStockMovements(List<StockMovementDTO> movements) {
+        return jdbcTemplate.batchUpdate(APPLY_STOCK_MOVEMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StockMovementDTO movement = movements.get(i);
+                ps.setInt(1, movement.getDelta());
+                ps.setLong(2, movement.getId());
+                ps.setInt(3, movement.getDelta());
+                ps.setInt(4, movement.getDelta());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return movements.size();
+            }
+        });
+    }
+
+    @Override
+    public void insertAll(List<Beer> beers) {
+        for (Beer beer : beers) {
+            entityManager.persist(beer);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public List<Long> addToQuantities(Map<Long, Long> deltas, Map<Long, Long> movements) {
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(deltas.entrySet());
+        int[] updateCounts = jdbcTemplate.batchUpdate(ADD_TO_QUANTITY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<Long, Long> entry = entries.get(i);
+                ps.setLong(1, entry.getValue());
+                ps.setLong(2, movements.getOrDefault(entry.getKey(), 1L));
+                ps.setLong(3, entry.getKey());
+                ps.setLong(4, entry.getValue());
+                ps.setLong(5, entry.getValue());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+        List<Long> rejectedIds = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                rejectedIds.add(entries.get(i).getKey());
+            }
+        }
+        return rejectedIds;
+    }
+
+    @Override
+    public List<Beer> findFirstById(Specification<Beer> specification, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Beer> query = builder.createQuery(Beer.class);
+        Root<Beer> root = query.from(Beer.class);
+        restrict(query, specification.toPredicate(root, query, builder))
+                .orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<BeerTotalDTO> totalsBy(String attribute, Specification<Beer> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Beer> root = query.from(Beer.class);
+        Path<Object> group = root.get(attribute);
+        query.multiselect(group,
+                builder.count(root),
+                builder.sumAsLong(root.get("quantity")),
+                builder.sumAsLong(root.get("max")));
+        restrict(query, specification.toPredicate(root, query, builder))
+                .groupBy(group)
+                .orderBy(builder.asc(group));
+        return entityManager.createQuery(query)
+                .getResultList()
+                .stream()
+                .map(tuple -> new BeerTotalDTO(
+                        String.valueOf(tuple.get(0)),
+                        tuple.get(1, Long.class),
+                        tuple.get(2, Long.class),
+                        tuple.get(3, Long.class)))
+                .collect(Collectors.toList());
+    }
+
+    // uma specification sem nenhum filtro devolve predicado nulo
+    private static <T> CriteriaQuery<T> restrict(CriteriaQuery<T> query, Predicate predicate) {
+        return predicate == null ? query : query.where(predicate);
+    }
+
+    @Override
+    public void streamAll(Consumer<Beer> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(STREAM_ALL_SQL);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(new Beer(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("brand"),
+                rs.getInt("max"),
+                rs.getInt("quantity"),
+                BeerType.valueOf(rs.getString("type")),
+                rs.getLong("version"),
+                rs.getString("search_name"),
+                rs.getInt("reserved"))));
+    }
+}
@@ -0,0 +1,52 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.dto.BeerFilterDTO;
+import juan.beerstockapi.entity.Beer;
+import org.springframework.data.jpa.domain.Specification;
+
+// predicados da filtragem de cervejas, combinados e executados no banco
+public final class BeerSpecifications {
+
+    private BeerSpecifications() {
+    }
+
+    public static Specification<Beer> matching(BeerFilterDTO filter) {
+        return Specification.where(hasType(filter))
+                .and(hasBrand(filter))
+                .and(quantityAtLeast(filter.getMinQuantity()))
+                .and(quantityAtMost(filter.getMaxQuantity()))
+                .and(quantityAtMost(filter.getLowStockThreshold()));
+    }
+
+    public static Specification<Beer> idGreaterThan(long id) {
+        return (root, query, builder) -> builder.greaterThan(root.get("id"), id);
+    }
+
+    private static Specification<Beer> hasType(BeerFilterDTO filter) {
+        if (filter.getType() == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get("type"), filter.getType());
+    }
+
+    private static Specification<Beer> hasBrand(BeerFilterDTO filter) {
+        if (filter.getBrand() == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get("brand"), filter.getBrand());
+    }
+
+    private static Specification<Beer> quantityAtLeast(Integer quantity) {
+        if (quantity == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("quantity"), quantity);
+    }
+
+    private static Specification<Beer> quantityAtMost(Integer quantity) {
+        if (quantity == null) {
+            return null;
+        }
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("quantity"), quantity);
+    }
+}
@@ -0,0 +1,9 @@
+package juan.beerstockapi.repository;
+
+// só o que identifica a versão de uma cerveja, para o ETag sem carregar a entidade
+public interface BeerVersion {
+
+    Long getId();
+
+    Long getVersion();
+}
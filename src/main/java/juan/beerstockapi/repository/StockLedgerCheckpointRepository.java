@@ -0,0 +1,7 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.entity.StockLedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StockLedgerCheckpointRepository extends JpaRepository<StockLedgerCheckpoint, Long> {
+}
@@ -0,0 +1,24 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.entity.StockMovementEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface StockMovementEntryRepository extends JpaRepository<StockMovementEntry, Long> {
+
+    // movimentos de uma cerveja no intervalo (from, to], o mesmo do sumDelta
+    List<StockMovementEntry> findByBeerIdAndOccurredAtGreaterThanAndOccurredAtLessThanEqualOrderByOccurredAtAscIdAsc(Long beerId, Instant from, Instant to, Pageable pageable);
+
+    // soma dos movimentos de uma cerveja no intervalo (from, to]
+    @Query("select coalesce(sum(m.delta), 0) from StockMovementEntry m where m.beerId = :beerId and m.occurredAt > :from and m.occurredAt <= :to")
+    long sumDelta(@Param("beerId") Long beerId, @Param("from") Instant from, @Param("to") Instant to);
+
+    // [beer_id, soma dos deltas] das cervejas que tiveram movimento no intervalo (from, to]
+    @Query("select m.beerId, sum(m.delta) from StockMovementEntry m where m.occurredAt > :from and m.occurredAt <= :to group by m.beerId")
+    List<Object[]> sumDeltaByBeer(@Param("from") Instant from, @Param("to") Instant to);
+}
@@ -0,0 +1,16 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // quem apagar a linha é quem encerra a reserva: confirmação, liberação e expiração
+    // concorrentes não mexem duas vezes no reserved do Beer
+    @Modifying
+    @Query("delete from StockReservation r where r.id = :id")
+    int deleteReservation(@Param("id") Long id);
+}
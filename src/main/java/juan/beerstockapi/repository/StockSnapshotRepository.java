@@ -0,0 +1,23 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+
+    Optional<StockSnapshot> findFirstByBeerIdAndTakenAtLessThanEqualOrderByTakenAtDesc(Long beerId, Instant at);
+
+    // todos os snapshots de uma rodada têm o mesmo taken_at, então este é o fim da última rodada
+    @Query("select max(s.takenAt) from StockSnapshot s")
+    Optional<Instant> findLastTakenAt();
+
+    @Query("select s from StockSnapshot s where s.beerId in :beerIds and s.takenAt = (select max(l.takenAt) from StockSnapshot l where l.beerId = s.beerId)")
+    List<StockSnapshot> findLatestByBeerIdIn(@Param("beerIds") Collection<Long> beerIds);
+}
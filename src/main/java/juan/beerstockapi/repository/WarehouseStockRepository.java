@@ -0,0 +1,40 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.entity.WarehouseStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WarehouseStockRepository extends JpaRepository<WarehouseStock, Long> {
+
+    List<WarehouseStock> findByBeerIdOrderByWarehouseAsc(Long beerId);
+
+    Optional<WarehouseStock> findByBeerIdAndWarehouse(Long beerId, String warehouse);
+
+    boolean existsByBeerIdAndWarehouse(Long beerId, String warehouse);
+
+    // mesmo update condicional do Beer, localizado pelo índice único (beer_id, warehouse).
+    // O @Transactional só abre transação para quem chama sem uma; vindo do BeerService, o update
+    // entra na transação do serviço e a linha fica travada até o commit dela.
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update WarehouseStock w set w.quantity = w.quantity + :quantity, w.version = w.version + 1 " +
+            "where w.beerId = :beerId and w.warehouse = :warehouse and w.quantity + :quantity <= w.max and w.quantity + :quantity >= 0")
+    int incrementQuantity(@Param("beerId") Long beerId, @Param("warehouse") String warehouse, @Param("quantity") int quantity);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update WarehouseStock w set w.quantity = w.quantity - :quantity, w.version = w.version + 1 " +
+            "where w.beerId = :beerId and w.warehouse = :warehouse and w.quantity - :quantity >= 0 and w.quantity - :quantity <= w.max")
+    int decrementQuantity(@Param("beerId") Long beerId, @Param("warehouse") String warehouse, @Param("quantity") int quantity);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WarehouseStock w where w.beerId = :beerId")
+    int deleteByBeerId(@Param("beerId") Long beerId);
+}
@@ -0,0 +1,96 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.repository.BeerRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// modo padrão: um único update condicional, a checagem do limite fica com o banco
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.mode", havingValue = "atomic", matchIfMissing = true)
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class AtomicStockUpdater implements StockUpdater {
+
+    private final BeerRepository beerRepository;
+    private final StockHistoryService stockHistory;
+
+    @Override
+    @Transactional
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededException {
+        if (beerRepository.incrementQuantity(id, quantityToIncrement) == 0) {
+            verifyIfExists(id);
+            throw new BeerStockExceededException(id, quantityToIncrement);
+        }
+        stockHistory.record(id, quantityToIncrement);
+        return verifyIfExists(id);
+    }
+
+    @Override
+    @Transactional
+    public Beer decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockEmptyException {
+        if (beerRepository.decrementQuantity(id, quantityToDecrement) == 0) {
+            verifyIfExists(id);
+            throw new BeerStockEmptyException(id, quantityToDecrement);
+        }
+        stockHistory.record(id, -quantityToDecrement);
+        return verifyIfExists(id);
+    }
+
+    @Override
+    @Transactional
+    public List<Beer> applyAll(List<StockMovementDTO> movements, boolean allOrNothing) {
+        int[] updateCounts = beerRepository.applyStockMovements(movements);
+        for (int i = 0; i < movements.size(); i++) {
+            if (updateCounts[i] != 0) {
+                stockHistory.record(movements.get(i).getId(), movements.get(i).getDelta());
+            }
+        }
+        return beersAfterEachMovement(beerRepository, movements, updateCounts);
+    }
+
+    // as linhas alteradas ficam travadas até o commit, então o estado lido agora é o do fim do lote;
+    // voltando pelos movimentos aplicados sai a quantidade e a versão depois de cada um
+    static List<Beer> beersAfterEachMovement(BeerRepository beerRepository, List<StockMovementDTO> movements, int[] updateCounts) {
+        Set<Long> appliedIds = new HashSet<>();
+        for (int i = 0; i < movements.size(); i++) {
+            if (updateCounts[i] != 0) {
+                appliedIds.add(movements.get(i).getId());
+            }
+        }
+        Map<Long, Beer> current = new HashMap<>();
+        for (Beer beer : beerRepository.findAllById(appliedIds)) {
+            current.put(beer.getId(), new Beer(beer.getId(), beer.getName(), beer.getBrand(), beer.getMax(),
+                    beer.getQuantity(), beer.getType(), beer.getVersion(), beer.getSearchName(), beer.getReserved()));
+        }
+        Beer[] beers = new Beer[movements.size()];
+        for (int i = movements.size() - 1; i >= 0; i--) {
+            Beer beer = updateCounts[i] == 0 ? null : current.get(movements.get(i).getId());
+            if (beer != null) {
+                beers[i] = beer;
+                current.put(beer.getId(), new Beer(beer.getId(), beer.getName(), beer.getBrand(), beer.getMax(),
+                        beer.getQuantity() - movements.get(i).getDelta(), beer.getType(), beer.getVersion() - 1,
+                        beer.getSearchName(), beer.getReserved()));
+            }
+        }
+        return Arrays.asList(beers);
+    }
+
+    private Beer verifyIfExists(Long id) throws BeerNotFoundException {
+        return beerRepository.findById(id)
+                .orElseThrow(() -> new BeerNotFoundException(id));
+    }
+}
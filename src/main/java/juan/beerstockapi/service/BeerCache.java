@@ -0,0 +1,112 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.dto.BeerDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// cache de leitura do findByName em dois níveis: nome -> id e id -> cerveja.
+// Assim as escritas que só conhecem o id (increment, decrement, lote de movimentos)
+// conseguem invalidar a cerveja sem precisar buscar o nome no banco.
+@Component
+public class BeerCache {
+
+    public static final String BEER_IDS_BY_NAME = "beerIdsByName";
+    public static final String BEERS_BY_ID = "beersById";
+
+    private static final int STRIPES = 1024;
+
+    private final Cache beerIdsByName;
+    private final Cache beersById;
+
+    // cada invalidação recebe um número de sequência, guardado na faixa do id invalidado.
+    // Uma leitura que começou antes de uma invalidação da mesma faixa não pode deixar
+    // o valor que leu no cache, senão a quantidade ficaria velha até expirar.
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    // conta toda invalidação, inclusive as só de nome (cerveja nova), e serve de versão do
+    // catálogo para os ETags das listagens. O epoch evita repetir valores depois de um restart.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogChanges = new AtomicLong();
+
+    @Autowired
+    public BeerCache(CacheManager cacheManager) {
+        this.beerIdsByName = cacheManager.getCache(BEER_IDS_BY_NAME);
+        this.beersById = cacheManager.getCache(BEERS_BY_ID);
+    }
+
+    public BeerDTO get(String name) {
+        Long id = beerIdsByName.get(name, Long.class);
+        return id == null ? null : beersById.get(id, BeerDTO.class);
+    }
+
+    // deve ser chamado antes de ler a cerveja no banco e o valor passado para o put
+    public long stamp() {
+        return sequence.get();
+    }
+
+    public String catalogVersion() {
+        return epoch + "-" + catalogChanges.get();
+    }
+
+    public void put(BeerDTO beerDTO, long stamp) {
+        Long id = beerDTO.getId();
+        beerIdsByName.put(beerDTO.getName(), id);
+        beersById.put(id, beerDTO);
+        if (invalidations.get(stripe(id)) > stamp) {
+            beersById.evict(id);
+        }
+    }
+
+    public void evict(Long id) {
+        afterCommit(() -> evictNow(id));
+    }
+
+    public void evict(String name, Long id) {
+        afterCommit(() -> {
+            beerIdsByName.evict(name);
+            evictNow(id);
+        });
+    }
+
+    public void evictName(String name) {
+        afterCommit(() -> beerIdsByName.evict(name));
+    }
+
+    private void evictNow(Long id) {
+        long invalidation = sequence.incrementAndGet();
+        invalidations.accumulateAndGet(stripe(id), invalidation, Math::max);
+        beersById.evict(id);
+    }
+
+    // dentro de uma transação a invalidação só pode acontecer depois do commit,
+    // senão uma leitura concorrente coloca de volta o valor anterior
+    private void afterCommit(Runnable invalidation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(invalidation);
+                }
+            });
+        } else {
+            invalidateNow(invalidation);
+        }
+    }
+
+    private void invalidateNow(Runnable invalidation) {
+        invalidation.run();
+        catalogChanges.incrementAndGet();
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (STRIPES - 1);
+    }
+}
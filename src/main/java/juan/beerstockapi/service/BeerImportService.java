@@ -0,0 +1,299 @@
+package juan.beerstockapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.BeerImportErrorDTO;
+import juan.beerstockapi.dto.BeerImportResultDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.event.StockChangedEvent;
+import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
+import juan.beerstockapi.mapper.BeerMapper;
+import juan.beerstockapi.repository.BeerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// importação em massa: lê o arquivo registro a registro e grava em blocos de chunkSize cervejas,
+// com uma consulta de nomes e um flush em batch (hibernate.jdbc.batch_size) por bloco. A memória usada depende do bloco e
+// do limite de erros listados, não do tamanho do arquivo.
+@Service
+public class BeerImportService {
+
+    private final BeerRepository beerRepository;
+    private final BeerCache beerCache;
+    private final StockHistoryService stockHistory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader ndjsonReader;
+    // o cabeçalho dá os nomes das colunas; espaços em volta dos valores e do cabeçalho são ignorados
+    private final ObjectReader csvReader = new CsvMapper()
+            .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .readerFor(BeerDTO.class)
+            .with(CsvSchema.emptySchema().withHeader());
+    private final int chunkSize;
+    private final int maxErrors;
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    @Autowired
+    public BeerImportService(BeerRepository beerRepository,
+                             BeerCache beerCache,
+                             StockHistoryService stockHistory,
+                             ApplicationEventPublisher eventPublisher,
+                             Validator validator,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${beerstock.import.chunk-size}") int chunkSize,
+                             @Value("${beerstock.import.max-errors}") int maxErrors) {
+        this.beerRepository = beerRepository;
+        this.beerCache = beerCache;
+        this.stockHistory = stockHistory;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ndjsonReader = objectMapper.readerFor(BeerDTO.class);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public BeerImportResultDTO importNdjson(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        return importRows(new NdjsonRows(reader));
+    }
+
+    // a primeira linha é o cabeçalho, com os nomes dos campos do BeerDTO em qualquer ordem.
+    // O parser do Jackson lê um registro por vez direto do stream e cuida de campos entre aspas
+    // (com vírgulas ou quebras de linha), aspas escapadas e do BOM UTF-8
+    public BeerImportResultDTO importCsv(InputStream input) throws IOException {
+        try (MappingIterator<BeerDTO> rows = csvReader.readValues(input)) {
+            return importRows(new CsvRows(rows));
+        }
+    }
+
+    private BeerImportResultDTO importRows(RowReader rows) throws IOException {
+        ImportReport report = new ImportReport(maxErrors);
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        while (rows.next()) {
+            long row = rows.row();
+            BeerDTO beerDTO;
+            try {
+                beerDTO = rows.read();
+            } catch (JsonProcessingException e) {
+                report.reject(row, null, e.getOriginalMessage());
+                continue;
+            }
+            Set<ConstraintViolation<BeerDTO>> violations = validator.validate(beerDTO);
+            if (!violations.isEmpty()) {
+                report.reject(row, beerDTO.getName(), describe(violations));
+                continue;
+            }
+            chunk.add(new ImportRow(row, beerDTO));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+        return report.toDTO();
+    }
+
+    // nomes que já estão no banco, inclusive os gravados por blocos anteriores do mesmo
+    // arquivo, saem de uma única consulta; repetições dentro do bloco são vistas em memória
+    private void importChunk(List<ImportRow> chunk, ImportReport report) {
+        Set<String> names = chunk.stream()
+                .map(importRow -> importRow.getBeerDTO().getName())
+                .collect(Collectors.toSet());
+        Set<String> registeredNames = new HashSet<>(beerRepository.findNamesIn(names));
+        Set<String> chunkNames = new HashSet<>();
+        List<ImportRow> rowsToInsert = new ArrayList<>(chunk.size());
+        for (ImportRow importRow : chunk) {
+            String name = importRow.getBeerDTO().getName();
+            if (registeredNames.contains(name) || !chunkNames.add(name)) {
+                report.reject(importRow.getRow(), name, new BeerAlreadyRegisteredException(name).getMessage());
+            } else {
+                rowsToInsert.add(importRow);
+            }
+        }
+        if (rowsToInsert.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Beer> beers = rowsToInsert.stream().map(this::toModel).collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> insertAll(beers));
+            report.imported(rowsToInsert.size());
+        } catch (DataIntegrityViolationException e) {
+            // outra requisição gravou algum dos nomes depois da consulta; o bloco foi desfeito
+            // e é refeito linha a linha para descobrir quais
+            for (ImportRow importRow : rowsToInsert) {
+                String name = importRow.getBeerDTO().getName();
+                try {
+                    Beer beer = toModel(importRow);
+                    transactionTemplate.executeWithoutResult(status -> insertAll(Collections.singletonList(beer)));
+                    report.imported(1);
+                } catch (DataIntegrityViolationException rowException) {
+                    report.reject(importRow.getRow(), name, new BeerAlreadyRegisteredException(name).getMessage());
+                }
+            }
+        }
+        rowsToInsert.forEach(importRow -> beerCache.evictName(importRow.getBeerDTO().getName()));
+    }
+
+    // a quantidade inicial entra no histórico como o primeiro movimento de cada cerveja, e os
+    // alertas a veem como saída do zero; os eventos só chegam aos listeners se o bloco fizer commit
+    private void insertAll(List<Beer> beers) {
+        beerRepository.insertAll(beers);
+        Map<Long, Long> initialQuantities = new HashMap<>();
+        beers.forEach(beer -> initialQuantities.put(beer.getId(), (long) beer.getQuantity()));
+        stockHistory.recordAll(initialQuantities);
+        beers.forEach(beer -> eventPublisher.publishEvent(StockChangedEvent.of(beer, BeerService.DEFAULT_WAREHOUSE, 0)));
+    }
+
+    private Beer toModel(ImportRow importRow) {
+        Beer beer = beerMapper.toModel(importRow.getBeerDTO());
+        beer.setId(null);
+        return beer;
+    }
+
+    private static String describe(Set<ConstraintViolation<BeerDTO>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    // next avança e guarda a linha onde o registro começa; read o converte, e um registro
+    // malformado não impede a leitura dos seguintes
+    private interface RowReader {
+        boolean next() throws IOException;
+
+        long row();
+
+        BeerDTO read() throws IOException;
+    }
+
+    // um objeto JSON por linha; linhas em branco são puladas, mas contam na numeração
+    private class NdjsonRows implements RowReader {
+
+        private final BufferedReader reader;
+        private String line;
+        private long row;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (!line.isBlank()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long row() {
+            return row;
+        }
+
+        @Override
+        public BeerDTO read() throws IOException {
+            return ndjsonReader.readValue(line);
+        }
+    }
+
+    // depois de um erro de conversão o MappingIterator pula o resto do registro
+    private static class CsvRows implements RowReader {
+
+        private final MappingIterator<BeerDTO> iterator;
+        private long row;
+
+        CsvRows(MappingIterator<BeerDTO> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (!iterator.hasNextValue()) {
+                return false;
+            }
+            row = iterator.getCurrentLocation().getLineNr();
+            return true;
+        }
+
+        @Override
+        public long row() {
+            return row;
+        }
+
+        @Override
+        public BeerDTO read() throws IOException {
+            return iterator.nextValue();
+        }
+    }
+
+    @lombok.Value
+    private static class ImportRow {
+        long row;
+        BeerDTO beerDTO;
+    }
+
+    private static class ImportReport {
+
+        private final int maxErrors;
+        private final List<BeerImportErrorDTO> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        ImportReport(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void imported(int rows) {
+            imported += rows;
+        }
+
+        void reject(long row, String name, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new BeerImportErrorDTO(row, name, message));
+            }
+        }
+
+        BeerImportResultDTO toDTO() {
+            return new BeerImportResultDTO(imported, rejected, errors, rejected > errors.size());
+        }
+    }
+}
@@ -1,51 +1,183 @@
 package juan.beerstockapi.service;
 
+import juan.beerstockapi.config.ReplicaRoutingDataSource;
+import juan.beerstockapi.dto.BeerFilterDTO;
+import juan.beerstockapi.dto.BeerStatsDTO;
+import juan.beerstockapi.dto.BeerStockDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.dto.StockMovementResultDTO;
+import juan.beerstockapi.dto.WarehouseStockDTO;
+import juan.beerstockapi.enums.StockMovementMode;
+import juan.beerstockapi.event.StockChangedEvent;
+import juan.beerstockapi.enums.StockMovementStatus;
 import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.StockMovementRejectedException;
+import juan.beerstockapi.exception.WarehouseAlreadyRegisteredException;
+import juan.beerstockapi.exception.WarehouseStockNotFoundException;
 import lombok.AllArgsConstructor;
 import juan.beerstockapi.dto.BeerDTO;
 import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.entity.WarehouseStock;
 import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
 import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
 import juan.beerstockapi.exception.BeerStockExceededException;
 import juan.beerstockapi.mapper.BeerMapper;
 import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.repository.BeerSpecifications;
+import juan.beerstockapi.repository.BeerVersion;
+import juan.beerstockapi.repository.WarehouseStockRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class BeerService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    public static final int MAX_SEARCH_LIMIT = 100;
+    // o estoque do próprio Beer, que os endpoints sem depósito continuam movimentando
+    public static final String DEFAULT_WAREHOUSE = "main";
+
     private final BeerRepository beerRepository;
+    private final BeerCache beerCache;
+    private final StockUpdater stockUpdater;
+    private final StockHistoryService stockHistory;
+    private final WarehouseStockRepository warehouseStockRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final BeerMapper beerMapper = BeerMapper.INSTANCE;
 
+    // o movimento inicial do histórico entra na mesma transação do insert
+    @Transactional
     public BeerDTO createBeer(BeerDTO beerDTO) throws BeerAlreadyRegisteredException {
         verifyIfIsAlreadyRegistered(beerDTO.getName());
         Beer beer = beerMapper.toModel(beerDTO);
         Beer savedBeer = beerRepository.save(beer);
+        stockHistory.record(savedBeer.getId(), savedBeer.getQuantity());
+        beerCache.evictName(savedBeer.getName());
+        eventPublisher.publishEvent(StockChangedEvent.of(savedBeer, DEFAULT_WAREHOUSE, 0));
         return beerMapper.toDTO(savedBeer);
     }
 
     public BeerDTO findByName(String name) throws BeerNotFoundException {
-        Beer foundBeer = beerRepository.findByName(name)
+        BeerDTO cachedBeerDTO = beerCache.get(name);
+        if (cachedBeerDTO != null) {
+            return cachedBeerDTO;
+        }
+        long cacheStamp = beerCache.stamp();
+        // vai para o cache, então é lida no primário
+        Beer foundBeer = ReplicaRoutingDataSource.readFromPrimary(() -> beerRepository.findByName(name))
                 .orElseThrow(() -> new BeerNotFoundException(name));
-        return beerMapper.toDTO(foundBeer);
+        BeerDTO foundBeerDTO = beerMapper.toDTO(foundBeer);
+        beerCache.put(foundBeerDTO, cacheStamp);
+        return foundBeerDTO;
     }
 
+    // id e versão da cerveja, o ETag do findByName: no cache sai de lá, senão são lidas só essas duas
+    // colunas, no primário como o findByName
+    public String versionTag(String name) throws BeerNotFoundException {
+        BeerDTO cachedBeerDTO = beerCache.get(name);
+        if (cachedBeerDTO != null) {
+            return versionTag(cachedBeerDTO);
+        }
+        BeerVersion beerVersion = ReplicaRoutingDataSource.readFromPrimary(() -> beerRepository.findVersionByName(name))
+                .orElseThrow(() -> new BeerNotFoundException(name));
+        return beerVersion.getId() + "-" + beerVersion.getVersion();
+    }
+
+    public static String versionTag(BeerDTO beerDTO) {
+        return beerDTO.getId() + "-" + beerDTO.getVersion();
+    }
+
+    // versão do catálogo inteiro; deve ser lida antes da consulta que ela vai identificar
+    public String catalogVersion() {
+        return beerCache.catalogVersion();
+    }
+
+    // listAll, listPage e streamAll saem com a versão do catálogo no ETag (ou no snapshot), que é a do
+    // primário; por isso leem o primário mesmo sendo readOnly
+    @Transactional(readOnly = true)
     public List<BeerDTO> listAll() {
-        return beerRepository.findAll()
+        return ReplicaRoutingDataSource.readFromPrimary(beerRepository::findAll)
+                .stream()
+                .map(beerMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    // página começando depois do id informado; o cliente passa o último id recebido para pegar a próxima
+    @Transactional(readOnly = true)
+    public List<BeerDTO> listPage(Long afterId, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return ReplicaRoutingDataSource.readFromPrimary(() -> beerRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, PageRequest.of(0, pageSize)))
+                .stream()
+                .map(beerMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    // mesma paginação por chave do listPage, com os filtros aplicados no banco
+    @Transactional(readOnly = true)
+    public List<BeerDTO> filter(BeerFilterDTO filter, Long afterId, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return beerRepository.findFirstById(BeerSpecifications.matching(filter)
+                        .and(BeerSpecifications.idGreaterThan(afterId == null ? 0L : afterId)), pageSize)
                 .stream()
                 .map(beerMapper::toDTO)
                 .collect(Collectors.toList());
     }
 
+    // totais por tipo e por marca calculados com group by, entre as cervejas que atendem ao filtro
+    @Transactional(readOnly = true)
+    public BeerStatsDTO stats(BeerFilterDTO filter) {
+        return new BeerStatsDTO(
+                beerRepository.totalsBy("type", BeerSpecifications.matching(filter)),
+                beerRepository.totalsBy("brand", BeerSpecifications.matching(filter)));
+    }
+
+    // autocomplete: ignora maiúsculas e acentos tanto no prefixo quanto nos nomes
+    @Transactional(readOnly = true)
+    public List<BeerDTO> searchByPrefix(String prefix, Integer limit) {
+        String normalizedPrefix = Beer.normalizeName(prefix);
+        if (normalizedPrefix.isBlank()) {
+            return Collections.emptyList();
+        }
+        int searchLimit = limit == null ? DEFAULT_SEARCH_LIMIT : Math.min(Math.max(limit, 1), MAX_SEARCH_LIMIT);
+        return beerRepository.findBySearchNameStartingWithOrderBySearchNameAsc(normalizedPrefix, PageRequest.of(0, searchLimit))
+                .stream()
+                .map(beerMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<BeerDTO> consumer) {
+        ReplicaRoutingDataSource.readFromPrimary(() -> {
+            beerRepository.streamAll(beer -> consumer.accept(beerMapper.toDTO(beer)));
+            return null;
+        });
+    }
+
+    @Transactional
     public void deleteById(Long id) throws BeerNotFoundException {
-        verifyIfExists(id);
+        Beer beerToDelete = verifyIfExists(id);
+        warehouseStockRepository.deleteByBeerId(id);
         beerRepository.deleteById(id);
+        stockUpdater.forget(id);
+        beerCache.evict(beerToDelete.getName(), id);
     }
 
     private void verifyIfIsAlreadyRegistered(String name) throws BeerAlreadyRegisteredException {
@@ -60,25 +192,169 @@ public class BeerService {
                 .orElseThrow(() -> new BeerNotFoundException(id));
     }
 
-    public BeerDTO increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededException {
-        Beer beerToIncrementStock = verifyIfExists(id);
-        int quantityAfterIncrement = quantityToIncrement + beerToIncrementStock.getQuantity();
-        if (quantityAfterIncrement <= beerToIncrementStock.getMax()) {
-            beerToIncrementStock.setQuantity(quantityAfterIncrement);
-            Beer incrementedBeerStock = beerRepository.save(beerToIncrementStock);
-            return beerMapper.toDTO(incrementedBeerStock);
+    public BeerDTO increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededException, BeerStockConflictException {
+        Beer incrementedBeer = stockUpdater.increment(id, quantityToIncrement);
+        beerCache.evict(id);
+        publishStockChanged(incrementedBeer, incrementedBeer.getQuantity() - quantityToIncrement);
+        return beerMapper.toDTO(incrementedBeer);
+    }
+
+    public BeerDTO decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockEmptyException, BeerStockConflictException {
+        Beer decrementedBeer = stockUpdater.decrement(id, quantityToDecrement);
+        beerCache.evict(id);
+        publishStockChanged(decrementedBeer, decrementedBeer.getQuantity() + quantityToDecrement);
+        return beerMapper.toDTO(decrementedBeer);
+    }
+
+    public WarehouseStockDTO addWarehouse(Long id, WarehouseStockDTO warehouseStockDTO) throws BeerNotFoundException, WarehouseAlreadyRegisteredException {
+        verifyIfExists(id);
+        String warehouse = warehouseStockDTO.getWarehouse();
+        if (DEFAULT_WAREHOUSE.equals(warehouse) || warehouseStockRepository.existsByBeerIdAndWarehouse(id, warehouse)) {
+            throw new WarehouseAlreadyRegisteredException(id, warehouse);
+        }
+        try {
+            WarehouseStock saved = warehouseStockRepository.save(new WarehouseStock(null, id, warehouse,
+                    warehouseStockDTO.getMax(), warehouseStockDTO.getQuantity(), null));
+            return toWarehouseStockDTO(saved);
+        } catch (DataIntegrityViolationException e) {
+            // outro cadastro do mesmo depósito passou na checagem ao mesmo tempo
+            throw new WarehouseAlreadyRegisteredException(id, warehouse);
         }
-        throw new BeerStockExceededException(id, quantityToIncrement);
     }
 
-    public BeerDTO decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockEmptyException {
-        Beer beerToDecrementStock = verifyIfExists(id);
-        int quantityAfterDecrement = beerToDecrementStock.getQuantity() - quantityToDecrement;
-        if (quantityAfterDecrement >= 0) {
-            beerToDecrementStock.setQuantity(quantityAfterDecrement);
-            Beer incrementedBeerStock = beerRepository.save(beerToDecrementStock);
-            return beerMapper.toDTO(incrementedBeerStock);
+    // quantidade em cada depósito, com o principal primeiro, e o total da cerveja
+    @Transactional(readOnly = true)
+    public BeerStockDTO stockByWarehouse(Long id) throws BeerNotFoundException {
+        Beer beer = verifyIfExists(id);
+        List<WarehouseStockDTO> warehouses = new ArrayList<>();
+        warehouses.add(new WarehouseStockDTO(DEFAULT_WAREHOUSE, beer.getMax(), beer.getQuantity()));
+        int total = beer.getQuantity();
+        for (WarehouseStock warehouseStock : warehouseStockRepository.findByBeerIdOrderByWarehouseAsc(id)) {
+            warehouses.add(toWarehouseStockDTO(warehouseStock));
+            total += warehouseStock.getQuantity();
         }
-        throw new BeerStockEmptyException(id, quantityToDecrement);
+        return new BeerStockDTO(beer.getId(), beer.getName(), total, warehouses);
+    }
+
+    // o depósito principal passa pelo StockUpdater configurado; os outros por um update
+    // condicional na linha do depósito, sem tocar na linha do Beer nem no cache de cervejas
+    @Transactional
+    public WarehouseStockDTO incrementAt(Long id, String warehouse, int quantityToIncrement) throws BeerNotFoundException, WarehouseStockNotFoundException, BeerStockExceededException, BeerStockConflictException {
+        if (DEFAULT_WAREHOUSE.equals(warehouse)) {
+            return toWarehouseStockDTO(increment(id, quantityToIncrement));
+        }
+        if (warehouseStockRepository.incrementQuantity(id, warehouse, quantityToIncrement) == 0) {
+            verifyIfWarehouseExists(id, warehouse);
+            throw new BeerStockExceededException(id, quantityToIncrement);
+        }
+        WarehouseStock warehouseStock = verifyIfWarehouseExists(id, warehouse);
+        publishStockChanged(id, warehouseStock, warehouseStock.getQuantity() - quantityToIncrement);
+        return toWarehouseStockDTO(warehouseStock);
+    }
+
+    @Transactional
+    public WarehouseStockDTO decrementAt(Long id, String warehouse, int quantityToDecrement) throws BeerNotFoundException, WarehouseStockNotFoundException, BeerStockEmptyException, BeerStockConflictException {
+        if (DEFAULT_WAREHOUSE.equals(warehouse)) {
+            return toWarehouseStockDTO(decrement(id, quantityToDecrement));
+        }
+        if (warehouseStockRepository.decrementQuantity(id, warehouse, quantityToDecrement) == 0) {
+            verifyIfWarehouseExists(id, warehouse);
+            throw new BeerStockEmptyException(id, quantityToDecrement);
+        }
+        WarehouseStock warehouseStock = verifyIfWarehouseExists(id, warehouse);
+        publishStockChanged(id, warehouseStock, warehouseStock.getQuantity() + quantityToDecrement);
+        return toWarehouseStockDTO(warehouseStock);
+    }
+
+    private WarehouseStock verifyIfWarehouseExists(Long id, String warehouse) throws WarehouseStockNotFoundException {
+        return warehouseStockRepository.findByBeerIdAndWarehouse(id, warehouse)
+                .orElseThrow(() -> new WarehouseStockNotFoundException(id, warehouse));
+    }
+
+    private static WarehouseStockDTO toWarehouseStockDTO(WarehouseStock warehouseStock) {
+        return new WarehouseStockDTO(warehouseStock.getWarehouse(), warehouseStock.getMax(), warehouseStock.getQuantity());
+    }
+
+    private static WarehouseStockDTO toWarehouseStockDTO(BeerDTO beerDTO) {
+        return new WarehouseStockDTO(DEFAULT_WAREHOUSE, beerDTO.getMax(), beerDTO.getQuantity());
+    }
+
+    @Transactional(rollbackFor = StockMovementRejectedException.class)
+    public List<StockMovementResultDTO> applyStockMovements(StockMovementRequestDTO stockMovementRequestDTO) throws StockMovementRejectedException {
+        List<StockMovementDTO> movements = stockMovementRequestDTO.getMovements();
+        boolean allOrNothing = stockMovementRequestDTO.getMode() == StockMovementMode.ALL_OR_NOTHING;
+        // pelo StockUpdater, para que o modo ledger confira e registre o lote nos próprios contadores
+        List<Beer> updatedBeers = stockUpdater.applyAll(movements, allOrNothing);
+
+        Set<Long> rejectedIds = new HashSet<>();
+        for (int i = 0; i < movements.size(); i++) {
+            if (updatedBeers.get(i) == null) {
+                rejectedIds.add(movements.get(i).getId());
+            } else {
+                beerCache.evict(movements.get(i).getId());
+            }
+        }
+        if (rejectedIds.isEmpty() || !allOrNothing) {
+            // um evento por movimento aplicado, na ordem do lote; com a transação aberta, só saem no commit
+            for (int i = 0; i < movements.size(); i++) {
+                Beer updatedBeer = updatedBeers.get(i);
+                if (updatedBeer != null) {
+                    publishStockChanged(updatedBeer, updatedBeer.getQuantity() - movements.get(i).getDelta());
+                }
+            }
+        }
+        if (rejectedIds.isEmpty()) {
+            return movements.stream()
+                    .map(movement -> toStockMovementResult(movement, StockMovementStatus.APPLIED, null))
+                    .collect(Collectors.toList());
+        }
+
+        // só consulta as cervejas dos movimentos recusados, para decidir qual exceção se aplica
+        Set<Long> existingIds = beerRepository.findAllById(rejectedIds)
+                .stream()
+                .map(Beer::getId)
+                .collect(Collectors.toSet());
+        List<StockMovementResultDTO> results = new ArrayList<>(movements.size());
+        for (int i = 0; i < movements.size(); i++) {
+            StockMovementDTO movement = movements.get(i);
+            if (updatedBeers.get(i) != null) {
+                StockMovementStatus status = allOrNothing ? StockMovementStatus.ROLLED_BACK : StockMovementStatus.APPLIED;
+                results.add(toStockMovementResult(movement, status, null));
+            } else if (!existingIds.contains(movement.getId())) {
+                results.add(toStockMovementResult(movement, StockMovementStatus.NOT_FOUND,
+                        new BeerNotFoundException(movement.getId()).getMessage()));
+            } else if (movement.getDelta() > 0) {
+                results.add(toStockMovementResult(movement, StockMovementStatus.STOCK_EXCEEDED,
+                        new BeerStockExceededException(movement.getId(), movement.getDelta()).getMessage()));
+            } else {
+                results.add(toStockMovementResult(movement, StockMovementStatus.STOCK_EMPTY,
+                        new BeerStockEmptyException(movement.getId(), -movement.getDelta()).getMessage()));
+            }
+        }
+        if (allOrNothing) {
+            throw new StockMovementRejectedException(results);
+        }
+        return results;
+    }
+
+    // os listeners só enfileiram, então publicar não atrasa a resposta do movimento
+    private void publishStockChanged(Beer beer, int previousQuantity) {
+        eventPublisher.publishEvent(StockChangedEvent.of(beer, DEFAULT_WAREHOUSE, previousQuantity));
+    }
+
+    // nos outros depósitos o limite é o max do próprio depósito
+    private void publishStockChanged(Long id, WarehouseStock warehouseStock, int previousQuantity) {
+        String name = beerRepository.findById(id).map(Beer::getName).orElse(null);
+        eventPublisher.publishEvent(new StockChangedEvent(id, name, warehouseStock.getWarehouse(),
+                previousQuantity, warehouseStock.getQuantity(), warehouseStock.getMax()));
+    }
+
+    private StockMovementResultDTO toStockMovementResult(StockMovementDTO movement, StockMovementStatus status, String message) {
+        return StockMovementResultDTO.builder()
+                .id(movement.getId())
+                .delta(movement.getDelta())
+                .status(status)
+                .message(message)
+                .build();
     }
 }
@@ -0,0 +1,171 @@
+package juan.beerstockapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import juan.beerstockapi.dto.BeerDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// o catálogo inteiro já serializado (e opcionalmente em gzip), para o GET sem paginação
+// devolver sempre o mesmo array de bytes em vez de mapear e serializar cada cerveja.
+// O snapshot é identificado pela versão do catálogo do BeerCache e refeito na primeira
+// leitura depois de uma escrita; enquanto isso as outras leituras esperam pelo mesmo rebuild.
+// O gzip é feito uma vez por versão, no nível de beerstock.catalog.gzip-level, e só quando o JSON
+// passa de server.compression.min-response-size; o Tomcat não recomprime o que já vem comprimido.
+// Só há gzip: o JDK não tem encoder de brotli, então um Accept-Encoding com br recebe gzip.
+@Component
+public class CatalogResponseCache {
+
+    private final BeerService beerService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final boolean enabled;
+    private final boolean gzip;
+    private final int gzipLevel;
+    private final long minCompressBytes;
+    // ReentrantLock e não synchronized: o rebuild faz I/O e não deve prender a thread carregadora
+    // quando as requisições rodam em virtual threads
+    private final Lock rebuildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public CatalogResponseCache(BeerService beerService,
+                                ObjectMapper objectMapper,
+                                @Value("${beerstock.catalog.precomputed}") boolean enabled,
+                                @Value("${beerstock.catalog.gzip}") boolean gzip,
+                                @Value("${beerstock.catalog.gzip-level}") int gzipLevel,
+                                @Value("${server.compression.min-response-size:2KB}") DataSize minCompressSize) {
+        if (gzipLevel < Deflater.BEST_SPEED || gzipLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("beerstock.catalog.gzip-level must be between 1 and 9");
+        }
+        this.beerService = beerService;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(BeerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.gzipLevel = gzipLevel;
+        this.minCompressBytes = minCompressSize.toBytes();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // respeita os q-values: "gzip;q=0" recusa, e "*" vale para o gzip quando ele não aparece
+    public boolean acceptsGzip(String acceptEncoding) {
+        if (!gzip || acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    public Snapshot current() throws IOException {
+        Snapshot current = snapshot;
+        if (current != null && current.version.equals(beerService.catalogVersion())) {
+            return current;
+        }
+        rebuildLock.lock();
+        try {
+            // a versão é lida antes da consulta: se mudar durante o rebuild, a próxima leitura refaz
+            String version = beerService.catalogVersion();
+            current = snapshot;
+            if (current == null || !current.version.equals(version)) {
+                current = build(version, current == null ? 8192 : current.json.length);
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot build(String version, int expectedSize) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(expectedSize);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            generator.writeStartArray();
+            beerService.streamAll(beerDTO -> {
+                try {
+                    writer.writeValue(generator, beerDTO);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        byte[] jsonBytes = json.toByteArray();
+        boolean compress = gzip && jsonBytes.length >= minCompressBytes;
+        return new Snapshot(version, jsonBytes, compress ? compress(jsonBytes, gzipLevel) : null);
+    }
+
+    // o custo da compressão só é pago uma vez por versão do catálogo, então o nível pode ser alto
+    private static byte[] compress(byte[] bytes, int level) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzipStream.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Snapshot {
+
+        private final String version;
+
+        private final byte[] json;
+
+        // nulo quando beerstock.catalog.gzip está desligado ou o JSON é menor que o limite
+        private final byte[] gzip;
+    }
+}
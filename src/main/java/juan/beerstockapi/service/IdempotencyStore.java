@@ -0,0 +1,106 @@
+package juan.beerstockapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import juan.beerstockapi.exception.IdempotencyKeyReusedException;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// respostas recentes por Idempotency-Key, para que a retentativa de um movimento de estoque
+// devolva o resultado já aplicado em vez de aplicar de novo.
+// Cada chave guarda um future: a primeira requisição faz o claim e executa, as repetidas que
+// chegam enquanto ela ainda roda esperam só por esse future, sem lock global.
+// Só resultados com sucesso ficam guardados; se a operação falha a chave é liberada e a
+// retentativa executa de novo, o que é seguro porque a falha não mexeu no estoque.
+@Component
+public class IdempotencyStore {
+
+    private static final Object FAILED = new Object();
+
+    private final Cache<String, Entry> entries;
+
+    @Autowired
+    public IdempotencyStore(@Value("${beerstock.idempotency.max-keys}") long maxKeys,
+                            @Value("${beerstock.idempotency.ttl}") Duration ttl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // request identifica a operação e os parâmetros; a mesma chave com outro request é recusada.
+    // Sem chave, o claim não guarda nada e a operação sempre executa.
+    public <T> Claim<T> claim(String key, Object request) throws IdempotencyKeyReusedException {
+        if (key == null) {
+            return new Claim<>(null, null, null);
+        }
+        while (true) {
+            Entry entry = new Entry(request, new CompletableFuture<>());
+            Entry existing = entries.asMap().putIfAbsent(key, entry);
+            if (existing == null) {
+                return new Claim<>(key, entry, null);
+            }
+            if (!existing.request.equals(request)) {
+                throw new IdempotencyKeyReusedException(key);
+            }
+            Object result = existing.result.join();
+            // a execução anterior falhou e liberou a chave: tenta o claim de novo
+            if (result != FAILED) {
+                return new Claim<>(key, null, result);
+            }
+        }
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    // usar com try-with-resources: se complete não foi chamado, o close libera a chave
+    public final class Claim<T> implements AutoCloseable {
+
+        private final String key;
+        private final Entry entry;
+        private final Object replayedResult;
+
+        private Claim(String key, Entry entry, Object replayedResult) {
+            this.key = key;
+            this.entry = entry;
+            this.replayedResult = replayedResult;
+        }
+
+        public boolean isReplay() {
+            return replayedResult != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T getResult() {
+            return (T) replayedResult;
+        }
+
+        public T complete(T result) {
+            if (entry != null) {
+                entry.result.complete(result);
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            if (entry != null && !entry.result.isDone()) {
+                entries.asMap().remove(key, entry);
+                entry.result.complete(FAILED);
+            }
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final Object request;
+        private final CompletableFuture<Object> result;
+    }
+}
@@ -0,0 +1,408 @@
+package juan.beerstockapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.entity.StockLedgerCheckpoint;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.ledger.StockLedger;
+import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.repository.StockLedgerCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// write-behind: a quantidade de cada cerveja vive num contador em memória, conferido contra
+// o reserved e o máximo com CAS. Cada movimento aceito vai para o ledger local antes de responder,
+// e um flush periódico soma os deltas por cerveja e grava tudo no banco num único batch, que
+// confere os mesmos limites; um delta recusado é descartado, logado e contado em
+// beerstock.stock.ledger.rejected, a não ser que a cerveja tenha sido apagada. Na subida, os segmentos do ledger ainda não gravados são reaplicados.
+// Leituras (findByName, listAll) vêm do banco e podem ficar até um flush atrasadas. Os movimentos
+// em lote (/stock-movements) passam pelos mesmos contadores e pelo ledger, e cada movimento soma 1
+// à versão, como no banco, que recebe no flush o número de movimentos. Reservas não são aceitas
+// neste modo: elas mexem no banco direto e deixariam os contadores para trás.
+@Slf4j
+// fora da inicialização preguiçosa: o ledger tem que ser recuperado antes de voltar a aceitar movimentos
+@Lazy(false)
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.mode", havingValue = "ledger")
+public class LedgerStockUpdater implements StockUpdater {
+
+    public static final String REJECTED_COUNTER = "beerstock.stock.ledger.rejected";
+
+    private static final long CHECKPOINT_ID = 1L;
+
+    private final BeerRepository beerRepository;
+    private final StockLedgerCheckpointRepository checkpointRepository;
+    private final BeerCache beerCache;
+    private final StockHistoryService stockHistory;
+    private final TransactionTemplate transactionTemplate;
+    private final StockLedger ledger;
+    private final long flushIntervalMillis;
+    private final Counter rejectedDeltas;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-ledger-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Long, StockCounter> counters = new ConcurrentHashMap<>();
+
+    // append no ledger + soma em pending acontecem sob o read lock; o flush troca de segmento
+    // e de mapa sob o write lock, então cada delta pendente está no segmento que vai ser gravado
+    private final ReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private volatile Map<Long, PendingDelta> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LedgerStockUpdater(BeerRepository beerRepository,
+                              StockLedgerCheckpointRepository checkpointRepository,
+                              BeerCache beerCache,
+                              StockHistoryService stockHistory,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${beerstock.stock.ledger.directory}") Path directory,
+                              @Value("${beerstock.stock.ledger.fsync}") boolean fsync,
+                              @Value("${beerstock.stock.ledger.flush-interval}") Duration flushInterval) throws IOException {
+        this.beerRepository = beerRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.beerCache = beerCache;
+        this.stockHistory = stockHistory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ledger = new StockLedger(directory, fsync);
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.rejectedDeltas = Counter.builder(REJECTED_COUNTER)
+                .description("Flushed stock ledger deltas the database rejected and that were discarded")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        // lidos numa transação de escrita para não vir de uma réplica atrasada
+        long checkpoint = transactionTemplate.execute(status -> checkpointRepository.findById(CHECKPOINT_ID))
+                .map(StockLedgerCheckpoint::getSegment)
+                .orElse(0L);
+        StockLedger.Recovery recovery = ledger.recover(checkpoint);
+        if (!recovery.getDeltas().isEmpty()) {
+            persist(recovery.getDeltas(), recovery.getMovements(), recovery.getLastSegment());
+        }
+        ledger.deleteUpTo(recovery.getLastSegment());
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(flushIntervalMillis + 10_000, TimeUnit.MILLISECONDS);
+        flush();
+        ledger.close();
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededException {
+        Beer incrementedBeer = apply(id, counterFor(id), quantityToIncrement);
+        if (incrementedBeer == null) {
+            throw new BeerStockExceededException(id, quantityToIncrement);
+        }
+        return incrementedBeer;
+    }
+
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockEmptyException {
+        Beer decrementedBeer = apply(id, counterFor(id), -quantityToDecrement);
+        if (decrementedBeer == null) {
+            throw new BeerStockEmptyException(id, quantityToDecrement);
+        }
+        return decrementedBeer;
+    }
+
+    // o lote inteiro sob o write lock: nenhum outro movimento mexe nos contadores enquanto os limites
+    // são conferidos em sequência, então um lote tudo-ou-nada recusado não deixa nada para desfazer.
+    // Uma falha de I/O no meio do lote mantém os movimentos já gravados no ledger
+    @Override
+    public List<Beer> applyAll(List<StockMovementDTO> movements, boolean allOrNothing) {
+        // a carga dos contadores vai ao banco, então fica fora do lock
+        Map<Long, StockCounter> batchCounters = new HashMap<>();
+        for (StockMovementDTO movement : movements) {
+            if (!batchCounters.containsKey(movement.getId())) {
+                try {
+                    batchCounters.put(movement.getId(), counterFor(movement.getId()));
+                } catch (BeerNotFoundException e) {
+                    batchCounters.put(movement.getId(), null);
+                }
+            }
+        }
+        Beer[] beers = new Beer[movements.size()];
+        rotationLock.writeLock().lock();
+        try {
+            Map<Long, Integer> quantities = new HashMap<>();
+            Map<Long, Long> versions = new HashMap<>();
+            boolean rejected = false;
+            for (int i = 0; i < movements.size(); i++) {
+                StockMovementDTO movement = movements.get(i);
+                StockCounter counter = batchCounters.get(movement.getId());
+                // a cerveja pode ter sido apagada depois da carga do contador
+                if (counter == null || counters.get(movement.getId()) != counter) {
+                    rejected = true;
+                    continue;
+                }
+                int quantityAfterUpdate = quantities.getOrDefault(movement.getId(), counter.quantity.get()) + movement.getDelta();
+                if (counter.allows(quantityAfterUpdate)) {
+                    long versionAfterUpdate = versions.getOrDefault(movement.getId(), counter.version.get()) + 1;
+                    quantities.put(movement.getId(), quantityAfterUpdate);
+                    versions.put(movement.getId(), versionAfterUpdate);
+                    beers[i] = counter.toBeer(quantityAfterUpdate, versionAfterUpdate);
+                } else {
+                    rejected = true;
+                }
+            }
+            if (rejected && allOrNothing) {
+                return Arrays.asList(beers);
+            }
+            for (int i = 0; i < movements.size(); i++) {
+                if (beers[i] != null) {
+                    StockMovementDTO movement = movements.get(i);
+                    append(movement.getId(), movement.getDelta());
+                    StockCounter counter = batchCounters.get(movement.getId());
+                    counter.quantity.addAndGet(movement.getDelta());
+                    counter.version.incrementAndGet();
+                }
+            }
+            return Arrays.asList(beers);
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsReservations() {
+        return false;
+    }
+
+    // só depois do commit do delete: desfeito, os deltas pendentes ainda têm que ir para o banco.
+    // Contador e pendentes saem juntos sob o write lock, então nenhum movimento entra entre os dois
+    @Override
+    public void forget(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forgetNow(id);
+                }
+            });
+        } else {
+            forgetNow(id);
+        }
+    }
+
+    private void forgetNow(Long id) {
+        rotationLock.writeLock().lock();
+        try {
+            counters.remove(id);
+            pending.remove(id);
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+    }
+
+    // grava no banco os deltas acumulados desde o último flush, junto com o checkpoint
+    // do segmento correspondente, e apaga os segmentos já gravados
+    public synchronized void flush() throws IOException {
+        Map<Long, PendingDelta> flushing;
+        long segment;
+        rotationLock.writeLock().lock();
+        try {
+            segment = ledger.rotate();
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+
+        // movimentos que se anulam ainda sobem a versão
+        Map<Long, Long> deltas = new HashMap<>();
+        Map<Long, Long> movements = new HashMap<>();
+        flushing.forEach((id, pendingDelta) -> {
+            deltas.put(id, pendingDelta.quantity.sum());
+            movements.put(id, pendingDelta.movements.sum());
+        });
+        try {
+            persist(deltas, movements, segment);
+        } catch (RuntimeException e) {
+            // o segmento continua no disco e os deltas voltam para o próximo flush, cujo
+            // checkpoint vai cobrir os dois segmentos
+            deltas.forEach((id, delta) -> pending.computeIfAbsent(id, key -> new PendingDelta()).add(delta, movements.get(id)));
+            throw e;
+        }
+        // o que estava no cache foi lido antes do flush e já não bate com o banco
+        deltas.keySet().forEach(beerCache::evict);
+        ledger.deleteUpTo(segment);
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to flush stock ledger, will retry on the next run", e);
+        }
+    }
+
+    private void persist(Map<Long, Long> deltas, Map<Long, Long> movements, long segment) {
+        List<Long> rejectedIds = transactionTemplate.execute(status -> {
+            List<Long> rejected = deltas.isEmpty() ? List.of() : beerRepository.addToQuantities(deltas, movements);
+            Map<Long, Long> applied = new HashMap<>(deltas);
+            rejected.forEach(applied::remove);
+            if (!applied.isEmpty()) {
+                stockHistory.recordAll(applied);
+            }
+            checkpointRepository.save(new StockLedgerCheckpoint(CHECKPOINT_ID, segment));
+            return rejected;
+        });
+        if (rejectedIds != null) {
+            rejectedIds.forEach(id -> discard(id, deltas.get(id), movements.get(id)));
+        }
+    }
+
+    // o banco recusou o delta: a cerveja foi apagada ou mudou por fora dos contadores. Apagada é
+    // esperado (um flush já em andamento no delete, ou o ledger reaplicado na subida); o resto é erro.
+    // O delta sai também do contador, que volta a ser o banco mais o que ainda está pendente
+    private void discard(Long id, long delta, long movementCount) {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> beerRepository.existsById(id)))) {
+            log.debug("Stock ledger delta {} for deleted beer {} discarded", delta, id);
+            return;
+        }
+        rejectedDeltas.increment();
+        log.error("Stock ledger delta {} for beer {} was rejected by the database and discarded", delta, id);
+        StockCounter counter = counters.get(id);
+        if (counter != null) {
+            counter.quantity.addAndGet((int) -delta);
+            counter.version.addAndGet(-movementCount);
+        }
+    }
+
+    // devolve a cerveja alterada, ou null se o movimento sairia dos limites
+    private Beer apply(Long id, StockCounter counter, int delta) throws BeerNotFoundException {
+        rotationLock.readLock().lock();
+        try {
+            // a cerveja pode ter sido apagada depois da carga do contador
+            if (counters.get(id) != counter) {
+                throw new BeerNotFoundException(id);
+            }
+            int quantityAfterUpdate = counter.tryAdd(delta);
+            if (quantityAfterUpdate < 0) {
+                return null;
+            }
+            try {
+                append(id, delta);
+            } catch (UncheckedIOException e) {
+                counter.quantity.addAndGet(-delta);
+                throw e;
+            }
+            return counter.toBeer(quantityAfterUpdate, counter.version.incrementAndGet());
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    // chamado sob o read ou o write lock
+    private void append(Long id, int delta) {
+        try {
+            ledger.append(id, delta);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pending.computeIfAbsent(id, key -> new PendingDelta()).add(delta, 1);
+    }
+
+    // o contador é carregado do banco no primeiro uso; a partir daí ele é a fonte da verdade
+    // para a quantidade, e o banco só recebe os deltas
+    private StockCounter counterFor(Long id) throws BeerNotFoundException {
+        StockCounter counter = counters.get(id);
+        if (counter != null) {
+            return counter;
+        }
+        Beer beer = transactionTemplate.execute(status -> beerRepository.findById(id))
+                .orElseThrow(() -> new BeerNotFoundException(id));
+        return counters.computeIfAbsent(id, key -> new StockCounter(beer));
+    }
+
+    // soma dos deltas e número de movimentos de uma cerveja desde o último flush
+    private static class PendingDelta {
+
+        private final LongAdder quantity = new LongAdder();
+        private final LongAdder movements = new LongAdder();
+
+        void add(long delta, long movementCount) {
+            quantity.add(delta);
+            movements.add(movementCount);
+        }
+    }
+
+    // o reserved não muda neste modo, porque as reservas são recusadas; a versão acompanha a do
+    // banco somando 1 por movimento
+    private static class StockCounter {
+
+        private final Beer beer;
+        private final AtomicInteger quantity;
+        private final AtomicLong version;
+
+        StockCounter(Beer beer) {
+            this.beer = beer;
+            this.quantity = new AtomicInteger(beer.getQuantity());
+            this.version = new AtomicLong(beer.getVersion() == null ? 0L : beer.getVersion());
+        }
+
+        boolean allows(int quantityAfterUpdate) {
+            return quantityAfterUpdate >= beer.getReserved() && quantityAfterUpdate <= beer.getMax();
+        }
+
+        int tryAdd(int delta) {
+            while (true) {
+                int current = quantity.get();
+                int next = current + delta;
+                if (!allows(next)) {
+                    return -1;
+                }
+                if (quantity.compareAndSet(current, next)) {
+                    return next;
+                }
+            }
+        }
+
+        Beer toBeer(int quantityAfterUpdate, long versionAfterUpdate) {
+            return new Beer(beer.getId(), beer.getName(), beer.getBrand(), beer.getMax(),
+                    quantityAfterUpdate, beer.getType(), versionAfterUpdate, beer.getSearchName(), beer.getReserved());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package juan.beerstockapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.repository.BeerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// lê, altera e grava conferindo o @Version da cerveja. Em caso de conflito tenta de novo
+// numa transação nova, esperando um tempo aleatório que cresce a cada tentativa.
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.mode", havingValue = "optimistic")
+public class OptimisticStockUpdater implements StockUpdater {
+
+    private final BeerRepository beerRepository;
+    private final StockHistoryService stockHistory;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final Counter attempts;
+    private final Counter conflicts;
+
+    @Autowired
+    public OptimisticStockUpdater(BeerRepository beerRepository,
+                                  StockHistoryService stockHistory,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${beerstock.stock.optimistic.max-attempts}") int maxAttempts,
+                                  @Value("${beerstock.stock.optimistic.backoff}") Duration backoff,
+                                  @Value("${beerstock.stock.optimistic.max-backoff}") Duration maxBackoff) {
+        this.beerRepository = beerRepository;
+        this.stockHistory = stockHistory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.attempts = Counter.builder("beerstock.stock.attempts")
+                .description("Stock update attempts")
+                .tag("mode", "optimistic")
+                .register(meterRegistry);
+        this.conflicts = Counter.builder("beerstock.stock.conflicts")
+                .description("Stock update attempts that lost an optimistic lock conflict")
+                .tag("mode", "optimistic")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededException, BeerStockConflictException {
+        StockUpdate update = addToQuantity(id, quantityToIncrement);
+        if (!update.isApplied()) {
+            throw new BeerStockExceededException(id, quantityToIncrement);
+        }
+        return update.getBeer();
+    }
+
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockEmptyException, BeerStockConflictException {
+        StockUpdate update = addToQuantity(id, -quantityToDecrement);
+        if (!update.isApplied()) {
+            throw new BeerStockEmptyException(id, quantityToDecrement);
+        }
+        return update.getBeer();
+    }
+
+    // o mesmo update condicional do modo atomic, que também sobe a versão, então uma
+    // atualização otimista concorrente percebe a mudança
+    @Override
+    @Transactional
+    public List<Beer> applyAll(List<StockMovementDTO> movements, boolean allOrNothing) {
+        int[] updateCounts = beerRepository.applyStockMovements(movements);
+        for (int i = 0; i < movements.size(); i++) {
+            if (updateCounts[i] != 0) {
+                stockHistory.record(movements.get(i).getId(), movements.get(i).getDelta());
+            }
+        }
+        return AtomicStockUpdater.beersAfterEachMovement(beerRepository, movements, updateCounts);
+    }
+
+    private StockUpdate addToQuantity(Long id, int delta) throws BeerNotFoundException, BeerStockConflictException {
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                StockUpdate update = transactionTemplate.execute(status -> tryAddToQuantity(id, delta));
+                if (update == null) {
+                    throw new BeerNotFoundException(id);
+                }
+                return update;
+            } catch (ConcurrencyFailureException e) {
+                // versão mudou desde a leitura, ou o banco recusou a escrita concorrente na mesma linha
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    throw new BeerStockConflictException(id, attempt);
+                }
+                backoff(id, attempt);
+            }
+        }
+    }
+
+    private StockUpdate tryAddToQuantity(Long id, int delta) {
+        Beer beer = beerRepository.findById(id).orElse(null);
+        if (beer == null) {
+            return null;
+        }
+        int quantityAfterUpdate = beer.getQuantity() + delta;
+        if (quantityAfterUpdate < beer.getReserved() || quantityAfterUpdate > beer.getMax()) {
+            return new StockUpdate(beer, false);
+        }
+        beer.setQuantity(quantityAfterUpdate);
+        Beer savedBeer = beerRepository.saveAndFlush(beer);
+        stockHistory.record(id, delta);
+        return new StockUpdate(savedBeer, true);
+    }
+
+    // full jitter: espera um tempo aleatório entre zero e o teto da tentativa
+    private void backoff(Long id, int attempt) throws BeerStockConflictException {
+        long ceiling = Math.min(maxBackoffNanos, backoffNanos << Math.min(attempt - 1, 20));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeerStockConflictException(id, attempt);
+        }
+    }
+
+    @lombok.Value
+    private static class StockUpdate {
+        Beer beer;
+        boolean applied;
+    }
+}
@@ -0,0 +1,253 @@
+package juan.beerstockapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.ReservationDTO;
+import juan.beerstockapi.dto.ReservationRequestDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.entity.StockReservation;
+import juan.beerstockapi.event.StockChangedEvent;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockUnavailableException;
+import juan.beerstockapi.exception.ReservationNotFoundException;
+import juan.beerstockapi.exception.ReservationsUnavailableException;
+import juan.beerstockapi.mapper.BeerMapper;
+import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.repository.StockReservationRepository;
+import juan.beerstockapi.timer.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// reservas de estoque para o checkout: reservar separa as unidades no reserved do Beer, e
+// confirmar as tira do estoque num único update, sem o par decremento + incremento compensatório.
+// A expiração fica num timing wheel em memória, alimentado na subida com as reservas gravadas;
+// nenhuma varredura da tabela procura reservas vencidas.
+// As reservas são respeitadas pelos modos atomic e optimistic e pelos movimentos em lote.
+// No modo ledger elas são recusadas, e a subida falha se ainda houver reservas gravadas.
+// Nunca é preguiçoso: o wheel tem que ser recarregado na subida, e não no primeiro uso.
+@Slf4j
+@Lazy(false)
+@Service
+public class ReservationService {
+
+    public static final String EXPIRED_COUNTER = "beerstock.reservations.expired";
+    public static final String PENDING_GAUGE = "beerstock.reservations.pending";
+
+    private final BeerRepository beerRepository;
+    private final StockReservationRepository reservationRepository;
+    private final BeerCache beerCache;
+    private final StockHistoryService stockHistory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockUpdater stockUpdater;
+    private final String stockMode;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final long tickMillis;
+    private final TimingWheel<Long> expiryWheel;
+    private final Counter expiredCounter;
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    // ids ainda esperando o wheel; confirmar ou liberar tira daqui e a expiração vira no-op
+    private final Set<Long> pendingExpiry = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ReservationService(BeerRepository beerRepository,
+                              StockReservationRepository reservationRepository,
+                              BeerCache beerCache,
+                              StockHistoryService stockHistory,
+                              ApplicationEventPublisher eventPublisher,
+                              StockUpdater stockUpdater,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${beerstock.reservations.ttl}") Duration defaultTtl,
+                              @Value("${beerstock.reservations.max-ttl}") Duration maxTtl,
+                              @Value("${beerstock.reservations.tick}") Duration tick,
+                              @Value("${beerstock.stock.mode}") String stockMode) {
+        this.beerRepository = beerRepository;
+        this.reservationRepository = reservationRepository;
+        this.beerCache = beerCache;
+        this.stockHistory = stockHistory;
+        this.eventPublisher = eventPublisher;
+        this.stockUpdater = stockUpdater;
+        this.stockMode = stockMode;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.expiryWheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        this.expiredCounter = Counter.builder(EXPIRED_COUNTER)
+                .description("Stock reservations released because they were not confirmed in time")
+                .register(meterRegistry);
+        Gauge.builder(PENDING_GAUGE, pendingExpiry, Set::size)
+                .description("Active stock reservations waiting for confirmation")
+                .register(meterRegistry);
+    }
+
+    // as reservas gravadas antes de um restart voltam para o wheel; as já vencidas saem no primeiro tick
+    @PostConstruct
+    void start() {
+        List<StockReservation> reservations = transactionTemplate.execute(status -> reservationRepository.findAll());
+        if (!stockUpdater.supportsReservations() && !reservations.isEmpty()) {
+            throw new IllegalStateException(String.format("%d stock reservations are still pending and beerstock.stock.mode=%s cannot track them; "
+                    + "confirm or release them in another mode first", reservations.size(), stockMode));
+        }
+        for (StockReservation reservation : reservations) {
+            scheduleExpiry(reservation);
+        }
+        ticker.scheduleAtFixedRate(this::expireDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    public ReservationDTO reserve(Long beerId, ReservationRequestDTO reservationRequestDTO) throws BeerNotFoundException, BeerStockUnavailableException, ReservationsUnavailableException {
+        if (!stockUpdater.supportsReservations()) {
+            throw new ReservationsUnavailableException(stockMode);
+        }
+        int quantity = reservationRequestDTO.getQuantity();
+        Instant expiresAt = Instant.now().plus(ttlOf(reservationRequestDTO));
+        StockReservation reservation = transactionTemplate.execute(status -> {
+            if (beerRepository.reserveQuantity(beerId, quantity) == 0) {
+                return null;
+            }
+            return reservationRepository.save(new StockReservation(null, beerId, quantity, expiresAt));
+        });
+        if (reservation == null) {
+            verifyIfBeerExists(beerId);
+            throw new BeerStockUnavailableException(beerId, quantity);
+        }
+        beerCache.evict(beerId);
+        scheduleExpiry(reservation);
+        return toReservationDTO(reservation);
+    }
+
+    // uma reserva vencida que o wheel ainda não recolheu é liberada aqui mesmo, e não confirmada
+    public BeerDTO confirm(Long reservationId) throws ReservationNotFoundException {
+        StockReservation reservation = verifyIfExists(reservationId);
+        if (!reservation.getExpiresAt().isAfter(Instant.now())) {
+            release(reservation);
+            throw new ReservationNotFoundException(reservationId);
+        }
+        Beer beer = transactionTemplate.execute(status -> {
+            if (reservationRepository.deleteReservation(reservationId) == 0
+                    || beerRepository.confirmQuantity(reservation.getBeerId(), reservation.getQuantity()) == 0) {
+                status.setRollbackOnly();
+                return null;
+            }
+            stockHistory.record(reservation.getBeerId(), -reservation.getQuantity());
+            return beerRepository.findById(reservation.getBeerId()).orElse(null);
+        });
+        if (beer == null) {
+            throw new ReservationNotFoundException(reservationId);
+        }
+        pendingExpiry.remove(reservationId);
+        beerCache.evict(beer.getId());
+        eventPublisher.publishEvent(StockChangedEvent.of(beer, BeerService.DEFAULT_WAREHOUSE, beer.getQuantity() + reservation.getQuantity()));
+        return beerMapper.toDTO(beer);
+    }
+
+    public void release(Long reservationId) throws ReservationNotFoundException {
+        StockReservation reservation = verifyIfExists(reservationId);
+        if (!release(reservation)) {
+            throw new ReservationNotFoundException(reservationId);
+        }
+    }
+
+    // roda na thread do ticker; uma falha no banco devolve a reserva ao wheel para o próximo tick
+    void expireDue() {
+        for (Long reservationId : expiryWheel.advanceTo(System.currentTimeMillis())) {
+            if (!pendingExpiry.remove(reservationId)) {
+                continue;
+            }
+            try {
+                Optional<StockReservation> reservation = findOnPrimary(reservationId);
+                if (reservation.isPresent() && release(reservation.get())) {
+                    expiredCounter.increment();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not expire stock reservation {}, retrying on the next tick", reservationId, e);
+                pendingExpiry.add(reservationId);
+                expiryWheel.schedule(reservationId, System.currentTimeMillis() + tickMillis);
+            }
+        }
+    }
+
+    private boolean release(StockReservation reservation) {
+        Boolean released = transactionTemplate.execute(status -> {
+            if (reservationRepository.deleteReservation(reservation.getId()) == 0) {
+                return false;
+            }
+            beerRepository.releaseQuantity(reservation.getBeerId(), reservation.getQuantity());
+            return true;
+        });
+        if (Boolean.TRUE.equals(released)) {
+            pendingExpiry.remove(reservation.getId());
+            beerCache.evict(reservation.getBeerId());
+            return true;
+        }
+        return false;
+    }
+
+    private void scheduleExpiry(StockReservation reservation) {
+        pendingExpiry.add(reservation.getId());
+        expiryWheel.schedule(reservation.getId(), reservation.getExpiresAt().toEpochMilli());
+    }
+
+    private Duration ttlOf(ReservationRequestDTO reservationRequestDTO) {
+        if (reservationRequestDTO.getTtlSeconds() == null) {
+            return defaultTtl;
+        }
+        Duration requestedTtl = Duration.ofSeconds(reservationRequestDTO.getTtlSeconds());
+        return requestedTtl.compareTo(maxTtl) > 0 ? maxTtl : requestedTtl;
+    }
+
+    private StockReservation verifyIfExists(Long reservationId) throws ReservationNotFoundException {
+        return findOnPrimary(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException(reservationId));
+    }
+
+    // numa transação de escrita, que vai ao primário: com réplica de leitura, uma reserva
+    // recém-criada pode ainda não ter chegado nela
+    private Optional<StockReservation> findOnPrimary(Long reservationId) {
+        return transactionTemplate.execute(status -> reservationRepository.findById(reservationId));
+    }
+
+    private void verifyIfBeerExists(Long beerId) throws BeerNotFoundException {
+        if (!beerRepository.existsById(beerId)) {
+            throw new BeerNotFoundException(beerId);
+        }
+    }
+
+    private static ReservationDTO toReservationDTO(StockReservation reservation) {
+        return new ReservationDTO(reservation.getId(), reservation.getBeerId(),
+                reservation.getQuantity(), reservation.getExpiresAt());
+    }
+}
@@ -0,0 +1,172 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.dto.PointInTimeStockDTO;
+import juan.beerstockapi.dto.StockMovementEntryDTO;
+import juan.beerstockapi.entity.StockMovementEntry;
+import juan.beerstockapi.entity.StockSnapshot;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.repository.StockMovementEntryRepository;
+import juan.beerstockapi.repository.StockSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// histórico da quantidade do depósito principal de cada cerveja. Os movimentos entram na
+// transação de quem alterou o Beer; no modo ledger entram no flush, um por cerveja com a soma
+// dos deltas do período. Snapshots periódicos guardam a quantidade de cada cerveja que teve
+// movimento, para que a consulta de um instante some só os movimentos depois do último deles.
+// O snapshot fecha em now - snapshot-delay, para não deixar de fora transações ainda abertas.
+// Nunca é preguiçoso, para que os snapshots rodem mesmo antes de alguém consultar o histórico.
+@Slf4j
+@Lazy(false)
+@Service
+public class StockHistoryService {
+
+    public static final int DEFAULT_HISTORY_LIMIT = 100;
+    public static final int MAX_HISTORY_LIMIT = 1000;
+
+    private final StockMovementEntryRepository movementRepository;
+    private final StockSnapshotRepository snapshotRepository;
+    private final BeerRepository beerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration snapshotInterval;
+    private final Duration snapshotDelay;
+    private final ScheduledExecutorService snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Instant lastSnapshotAt;
+
+    @Autowired
+    public StockHistoryService(StockMovementEntryRepository movementRepository,
+                               StockSnapshotRepository snapshotRepository,
+                               BeerRepository beerRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${beerstock.history.snapshot-interval}") Duration snapshotInterval,
+                               @Value("${beerstock.history.snapshot-delay}") Duration snapshotDelay) {
+        this.movementRepository = movementRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.beerRepository = beerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotInterval = snapshotInterval;
+        this.snapshotDelay = snapshotDelay;
+    }
+
+    @PostConstruct
+    void start() {
+        lastSnapshotAt = transactionTemplate.execute(status -> snapshotRepository.findLastTakenAt()).orElse(Instant.EPOCH);
+        long intervalMillis = snapshotInterval.toMillis();
+        snapshotter.scheduleWithFixedDelay(this::scheduledSnapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        snapshotter.shutdownNow();
+    }
+
+    // deve ser chamado dentro da transação que alterou a quantidade
+    public void record(Long beerId, long delta) {
+        if (delta != 0) {
+            movementRepository.save(new StockMovementEntry(null, beerId, delta, Instant.now()));
+        }
+    }
+
+    public void recordAll(Map<Long, Long> deltas) {
+        Instant occurredAt = Instant.now();
+        List<StockMovementEntry> movements = new ArrayList<>(deltas.size());
+        deltas.forEach((beerId, delta) -> {
+            if (delta != 0) {
+                movements.add(new StockMovementEntry(null, beerId, delta, occurredAt));
+            }
+        });
+        movementRepository.saveAll(movements);
+    }
+
+    // intervalo (from, to]: o movimento em from já está no stockAt(from), o em to ainda não está antes dele
+    @Transactional(readOnly = true)
+    public List<StockMovementEntryDTO> movements(Long beerId, Instant from, Instant to, Integer limit) throws BeerNotFoundException {
+        verifyIfBeerExists(beerId);
+        int historyLimit = limit == null ? DEFAULT_HISTORY_LIMIT : Math.min(Math.max(limit, 1), MAX_HISTORY_LIMIT);
+        return movementRepository.findByBeerIdAndOccurredAtGreaterThanAndOccurredAtLessThanEqualOrderByOccurredAtAscIdAsc(beerId,
+                        from == null ? Instant.EPOCH : from, to == null ? Instant.now() : to, PageRequest.of(0, historyLimit))
+                .stream()
+                .map(movement -> new StockMovementEntryDTO(movement.getDelta(), movement.getOccurredAt()))
+                .collect(Collectors.toList());
+    }
+
+    // último snapshot até o instante + movimentos entre os dois, pelo índice (beer_id, tempo)
+    @Transactional(readOnly = true)
+    public PointInTimeStockDTO stockAt(Long beerId, Instant at) throws BeerNotFoundException {
+        verifyIfBeerExists(beerId);
+        Optional<StockSnapshot> snapshot = snapshotRepository.findFirstByBeerIdAndTakenAtLessThanEqualOrderByTakenAtDesc(beerId, at);
+        Instant from = snapshot.map(StockSnapshot::getTakenAt).orElse(Instant.EPOCH);
+        long quantity = snapshot.map(StockSnapshot::getQuantity).orElse(0L) + movementRepository.sumDelta(beerId, from, at);
+        return new PointInTimeStockDTO(beerId, at, quantity, snapshot.map(StockSnapshot::getTakenAt).orElse(null));
+    }
+
+    // uma rodada: soma por cerveja os movimentos desde a rodada anterior e grava o novo total
+    // só das cervejas que se moveram; as outras continuam valendo pelo snapshot anterior
+    public synchronized int takeSnapshots() {
+        Instant takenAt = Instant.now().minus(snapshotDelay);
+        if (!takenAt.isAfter(lastSnapshotAt)) {
+            return 0;
+        }
+        Integer taken = transactionTemplate.execute(status -> {
+            Map<Long, Long> deltas = movementRepository.sumDeltaByBeer(lastSnapshotAt, takenAt)
+                    .stream()
+                    .collect(Collectors.toMap(row -> (Long) row[0], row -> ((Number) row[1]).longValue()));
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+            Map<Long, StockSnapshot> previous = snapshotRepository.findLatestByBeerIdIn(deltas.keySet())
+                    .stream()
+                    .collect(Collectors.toMap(StockSnapshot::getBeerId, Function.identity()));
+            List<StockSnapshot> snapshots = new ArrayList<>(deltas.size());
+            deltas.forEach((beerId, delta) -> {
+                StockSnapshot last = previous.get(beerId);
+                snapshots.add(new StockSnapshot(null, beerId, (last == null ? 0 : last.getQuantity()) + delta, takenAt));
+            });
+            snapshotRepository.saveAll(snapshots);
+            return snapshots.size();
+        });
+        lastSnapshotAt = takenAt;
+        return taken == null ? 0 : taken;
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            takeSnapshots();
+        } catch (RuntimeException e) {
+            log.error("Failed to take stock snapshots, will retry on the next run", e);
+        }
+    }
+
+    private void verifyIfBeerExists(Long beerId) throws BeerNotFoundException {
+        if (!beerRepository.existsById(beerId)) {
+            throw new BeerNotFoundException(beerId);
+        }
+    }
+}
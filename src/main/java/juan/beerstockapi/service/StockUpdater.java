@@ -0,0 +1,34 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+
+import java.util.List;
+
+// como a quantidade em estoque é alterada; a implementação é escolhida por beerstock.stock.mode.
+// Cada implementação cuida da própria transação e devolve a cerveja já alterada.
+public interface StockUpdater {
+
+    Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededException, BeerStockConflictException;
+
+    Beer decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockEmptyException, BeerStockConflictException;
+
+    // movimentos em lote, na transação de quem chama; cada posição do retorno é a cerveja como ficou
+    // logo depois daquele movimento, ou null se a cerveja não existe ou o limite seria violado.
+    // Num lote tudo-ou-nada com algum movimento recusado, quem chama desfaz a transação
+    List<Beer> applyAll(List<StockMovementDTO> movements, boolean allOrNothing);
+
+    // reservas mexem no quantity e no reserved direto no banco; quem guarda a quantidade
+    // fora dele não as enxergaria
+    default boolean supportsReservations() {
+        return true;
+    }
+
+    // chamado quando a cerveja é apagada, para implementações que guardam estado por cerveja
+    default void forget(Long id) {
+    }
+}
@@ -0,0 +1,123 @@
+package juan.beerstockapi.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// timing wheel hierárquico: LEVELS rodas de SLOTS posições, cada nível com ticks SLOTS vezes
+// maiores que o anterior. Agendar é O(1) e cada tick só olha uma posição da primeira roda;
+// quando ela dá a volta, a posição atual da roda de cima é redistribuída nas de baixo.
+// Com ticks de 1s, os quatro níveis cobrem mais de 190 dias sem percorrer os itens agendados.
+// Não há cancelamento: quem agenda ignora os itens que já não valem quando vencerem.
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final List<List<Entry<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    // itens agendados para um tick que já passou; saem no próximo advanceTo
+    private List<T> overdue = new ArrayList<>();
+
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    // o prazo é arredondado para cima até o tick seguinte, então nada vence antes da hora
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long elapsed = deadlineMillis - startMillis;
+        long deadlineTick = elapsed <= 0 ? 0 : (elapsed + tickMillis - 1) / tickMillis;
+        if (deadlineTick <= currentTick) {
+            overdue.add(item);
+        } else {
+            place(new Entry<>(item, deadlineTick));
+        }
+        size++;
+    }
+
+    // avança até o instante informado e devolve os itens vencidos até ele
+    public synchronized List<T> advanceTo(long nowMillis) {
+        List<T> expired = overdue;
+        overdue = new ArrayList<>();
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            List<Entry<T>> due = slot(0, (int) (currentTick & SLOT_MASK));
+            for (Entry<T> entry : due) {
+                expired.add(entry.item);
+            }
+            due.clear();
+        }
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // do nível mais alto para o mais baixo, para que o que desce de um nível ainda seja
+    // redistribuído pelo nível de baixo no mesmo tick
+    private void cascade() {
+        int level = 0;
+        while (level + 1 < LEVELS && (currentTick & ((1L << (SLOT_BITS * (level + 1))) - 1)) == 0) {
+            level++;
+        }
+        for (; level > 0; level--) {
+            List<Entry<T>> current = slot(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+            if (current.isEmpty()) {
+                continue;
+            }
+            List<Entry<T>> entries = new ArrayList<>(current);
+            current.clear();
+            entries.forEach(this::place);
+        }
+    }
+
+    // na redistribuição o prazo pode ser o próprio tick atual: cai na posição da primeira roda
+    // que advanceTo recolhe logo em seguida
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta >= SPAN) {
+            // além do alcance das rodas: fica na última posição da roda de cima a ser
+            // redistribuída nesta volta e é reposicionado quando ela chegar
+            int top = LEVELS - 1;
+            slot(top, (int) (((currentTick >>> (SLOT_BITS * top)) + SLOT_MASK) & SLOT_MASK)).add(entry);
+            return;
+        }
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        slot(level, (int) ((entry.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK)).add(entry);
+    }
+
+    private List<Entry<T>> slot(int level, int index) {
+        return slots.get(level * SLOTS + index);
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final long deadlineTick;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
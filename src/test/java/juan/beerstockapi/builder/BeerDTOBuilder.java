@@ -30,12 +30,20 @@ public class BeerDTOBuilder {
     @Builder.Default
     private BeerType type = BeerType.LAGER;
 
+    @Builder.Default
+    private Long version = null;
+
+    @Builder.Default
+    private int reserved = 0;
+
     public BeerDTO toBeerDTO() {
         return new BeerDTO(id,
                 name,
                 brand,
                 max,
                 quantity,
-                type);
+                type,
+                version,
+                reserved);
     }
 }
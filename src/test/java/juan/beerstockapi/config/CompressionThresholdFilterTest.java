@@ -0,0 +1,112 @@
+package juan.beerstockapi.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.MimeTypeUtils;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+public class CompressionThresholdFilterTest {
+
+    private static final int THRESHOLD = 2048;
+
+    @Test
+    void whenAWriterBasedResponseIsBelowTheThresholdThenItGoesOutWithContentLengthAndUncompressed() throws Exception {
+        String body = "{\"name\":\"Writer\"}";
+
+        MockHttpServletResponse response = filter(6, writing(body, false));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING), is(nullValue()));
+        // retido até o fim mesmo com o flush do writer: o Content-Length é o que impede o gzip do Tomcat
+        assertThat(response.getContentLength(), is(equalTo(body.length())));
+        assertThat(response.getContentAsString(), is(equalTo(body)));
+    }
+
+    @Test
+    void whenAWriterBasedResponseIsAboveTheThresholdThenItIsGzipped() throws Exception {
+        String body = largeBody();
+
+        MockHttpServletResponse response = filter(6, writing(body, false));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING), is(equalTo("gzip")));
+        assertThat(response.getHeader(HttpHeaders.VARY), is(equalTo(HttpHeaders.ACCEPT_ENCODING)));
+        assertThat(gunzip(response.getContentAsByteArray()), is(equalTo(body)));
+    }
+
+    @Test
+    void whenTheLevelIsRaisedThenTheSameResponseIsSmaller() throws Exception {
+        String body = largeBody();
+
+        byte[] fastest = filter(1, writing(body, false)).getContentAsByteArray();
+        byte[] smallest = filter(9, writing(body, false)).getContentAsByteArray();
+
+        assertThat(smallest.length, is(lessThan(fastest.length)));
+        assertThat(gunzip(fastest), is(equalTo(body)));
+        assertThat(gunzip(smallest), is(equalTo(body)));
+    }
+
+    @Test
+    void whenTheResponseHasAStrongETagThenItIsNotCompressed() throws Exception {
+        String body = largeBody();
+
+        MockHttpServletResponse response = filter(6, writing(body, true));
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.getContentAsString(), is(equalTo(body)));
+    }
+
+    private static MockHttpServletResponse filter(int level, HttpServlet servlet) throws Exception {
+        CompressionThresholdFilter filter = new CompressionThresholdFilter(THRESHOLD, level,
+                MimeTypeUtils.parseMimeTypes("application/json,application/x-ndjson"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/beers");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    private static HttpServlet writing(String body, boolean strongETag) {
+        return new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                if (strongETag) {
+                    response.setHeader(HttpHeaders.ETAG, "\"1\"");
+                }
+                response.getWriter().write(body);
+                response.flushBuffer();
+            }
+        };
+    }
+
+    private static String largeBody() {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"Beer").append(i * 7919 % 1000).append("\"}");
+        }
+        return body.append("]").toString();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
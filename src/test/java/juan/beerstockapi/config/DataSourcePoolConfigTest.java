@@ -0,0 +1,45 @@
+package juan.beerstockapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.metrics.PoolWaitMetricsTrackerFactory;
+import juan.beerstockapi.repository.BeerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+// limite zero: toda aquisição de conexão conta como espera longa
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "beerstock.datasource.slow-acquire-threshold=PT0S"
+})
+public class DataSourcePoolConfigTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Test
+    void whenRepositoryIsCalledThenPoolMetricsAndSlowAcquiresAreRecorded() {
+        beerRepository.count();
+
+        assertThat(((HikariDataSource) dataSource).getMetricsTrackerFactory(), is(instanceOf(PoolWaitMetricsTrackerFactory.class)));
+        assertThat(meterRegistry.find("hikaricp.connections.active").tag("pool", "beerstock").gauge(), is(notNullValue()));
+        assertThat(meterRegistry.find("hikaricp.connections.pending").tag("pool", "beerstock").gauge(), is(notNullValue()));
+        assertThat(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "beerstock").timer().count(), is(greaterThan(0L)));
+        assertThat(meterRegistry.get(PoolWaitMetricsTrackerFactory.SLOW_ACQUIRE_COUNTER).tag("pool", "beerstock").counter().count(), is(greaterThan(0.0)));
+    }
+}
@@ -0,0 +1,51 @@
+package juan.beerstockapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.service.BeerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+// sobe o perfil prod contra um banco em arquivo num diretório temporário
+@SpringBootTest
+@ActiveProfiles("prod")
+public class ProdProfileTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private BeerService beerService;
+
+    @DynamicPropertySource
+    static void databaseFile(DynamicPropertyRegistry registry) {
+        registry.add("BEERSTOCK_DB_URL", () -> "jdbc:h2:file:" + directory.resolve("beerstock") + ";QUERY_CACHE_SIZE=64");
+    }
+
+    @Test
+    void whenProdProfileIsActiveThenFileDatabaseAndFixedPoolAreUsed() throws Exception {
+        beerService.createBeer(BeerDTOBuilder.builder().id(null).name("ProdProfile").build().toBeerDTO());
+
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+        assertThat(hikariDataSource.getMaximumPoolSize(), is(equalTo(20)));
+        assertThat(hikariDataSource.getMinimumIdle(), is(equalTo(20)));
+        assertThat(Files.exists(directory.resolve("beerstock.mv.db")), is(true));
+        assertThat(beerService.findByName("ProdProfile").getQuantity(), is(equalTo(10)));
+    }
+}
@@ -0,0 +1,153 @@
+package juan.beerstockapi.config;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.service.BeerService;
+import juan.beerstockapi.service.CatalogResponseCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// dois H2 em memória fazendo papel de primário e réplica; a "replicação" é o teste copiando
+// as linhas para a réplica com outra quantidade, para saber de qual banco cada leitura veio
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaConfigTest.PRIMARY_URL,
+        "beerstock.datasource.replica.enabled=true",
+        "beerstock.datasource.replica.url=" + ReadReplicaConfigTest.REPLICA_URL,
+        "beerstock.datasource.replica.sticky-window=PT1M"
+})
+@AutoConfigureMockMvc
+public class ReadReplicaConfigTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+    private static final int REPLICA_QUANTITY = 3;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogResponseCache catalogResponseCache;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void copySchemaToReplica() {
+        if (replica.queryForObject("select count(*) from information_schema.tables where table_name = 'BEER'", Integer.class) > 0) {
+            return;
+        }
+        for (String statement : new JdbcTemplate(primaryDataSource).queryForList("script nodata", String.class)) {
+            replica.execute(statement);
+        }
+    }
+
+    @Test
+    void whenReadOnlyMethodsAreCalledThenTheyReadFromTheReplica() throws Exception {
+        BeerDTO beerDTO = createAndReplicate("ReplicaLager");
+
+        assertThat(quantityIn(beerService.searchByPrefix("ReplicaLager", null), beerDTO.getName()), is(equalTo(REPLICA_QUANTITY)));
+        assertThat(beerService.stockByWarehouse(beerDTO.getId()).getTotal(), is(equalTo(REPLICA_QUANTITY)));
+
+        assertThat(beerService.increment(beerDTO.getId(), 1).getQuantity(), is(equalTo(beerDTO.getQuantity() + 1)));
+        assertThat(beerService.stockByWarehouse(beerDTO.getId()).getTotal(), is(equalTo(REPLICA_QUANTITY)));
+    }
+
+    @Test
+    void whenClientWritesThenItsNextReadsStayOnThePrimary() throws Exception {
+        BeerDTO beerDTO = createAndReplicate("ReplicaStout");
+
+        Cookie sticky = mockMvc.perform(patch("/api/v1/beers/" + beerDTO.getId() + "/increment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"quantity\": 1}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertThat(sticky, is(notNullValue()));
+
+        mockMvc.perform(get("/api/v1/beers/" + beerDTO.getId() + "/warehouses").cookie(sticky))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(beerDTO.getQuantity() + 1));
+        mockMvc.perform(get("/api/v1/beers/" + beerDTO.getId() + "/warehouses"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(REPLICA_QUANTITY));
+        mockMvc.perform(get("/api/v1/beers/" + beerDTO.getId() + "/warehouses")
+                        .cookie(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - 1))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(REPLICA_QUANTITY));
+    }
+
+    // a réplica fica parada na quantidade copiada: as leituras que vão para caches ou levam a
+    // versão do catálogo no ETag não podem trazer esse valor atrasado
+    @Test
+    void whenReplicaLagsThenCachedAndVersionTaggedReadsComeFromThePrimary() throws Exception {
+        BeerDTO beerDTO = createAndReplicate("ReplicaLagging");
+        int primaryQuantity = beerDTO.getQuantity() + 1;
+
+        String staleETag = mockMvc.perform(get("/api/v1/beers"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        beerService.increment(beerDTO.getId(), 1);
+
+        mockMvc.perform(get("/api/v1/beers").header("If-None-Match", staleETag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'ReplicaLagging')].quantity").value(primaryQuantity));
+        assertThat(quantityIn(beerService.listAll(), beerDTO.getName()), is(equalTo(primaryQuantity)));
+        assertThat(quantityIn(beerService.listPage(beerDTO.getId() - 1, 1), beerDTO.getName()), is(equalTo(primaryQuantity)));
+        // o ETag conferido antes do findByName: só id e versão, também do primário
+        assertThat(beerService.versionTag("ReplicaLagging"), is(equalTo(beerDTO.getId() + "-" + (beerDTO.getVersion() + 1))));
+        assertThat(beerService.findByName("ReplicaLagging").getQuantity(), is(equalTo(primaryQuantity)));
+
+        String snapshot = new String(catalogResponseCache.current().getJson(), StandardCharsets.UTF_8);
+        assertThat(snapshot, containsString("\"name\":\"ReplicaLagging\",\"brand\":\"" + beerDTO.getBrand() + "\",\"max\":"
+                + beerDTO.getMax() + ",\"quantity\":" + primaryQuantity));
+    }
+
+    private BeerDTO createAndReplicate(String name) throws Exception {
+        BeerDTO beerDTO = beerService.createBeer(BeerDTOBuilder.builder().id(null).name(name).build().toBeerDTO());
+        Map<String, Object> row = new JdbcTemplate(primaryDataSource).queryForMap("select * from beer where id = ?", beerDTO.getId());
+        row.put("QUANTITY", REPLICA_QUANTITY);
+        List<String> columns = new ArrayList<>(row.keySet());
+        replica.update("insert into beer (" + String.join(", ", columns) + ") values ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", row.values().toArray());
+        return beerDTO;
+    }
+
+    private static int quantityIn(List<BeerDTO> beers, String name) {
+        return beers.stream()
+                .filter(beer -> beer.getName().equals(name))
+                .findFirst()
+                .orElseThrow()
+                .getQuantity();
+    }
+}
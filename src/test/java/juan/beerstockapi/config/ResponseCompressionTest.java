@@ -0,0 +1,91 @@
+package juan.beerstockapi.config;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.service.BeerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+// compressão com o Tomcat de verdade na frente: só acima de server.compression.min-response-size
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:compression;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+public class ResponseCompressionTest {
+
+    private static final int BEERS = 100;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Test
+    void whenResponseIsAboveTheThresholdThenItIsGzippedOnlyForClientsThatAcceptIt() throws Exception {
+        for (int i = 0; i < BEERS; i++) {
+            beerService.createBeer(BeerDTOBuilder.builder().id(null).name("Compressed" + i).build().toBeerDTO());
+        }
+
+        HttpURLConnection gzipped = open("/api/v1/beers", "gzip, deflate, br");
+        try (InputStream body = new GZIPInputStream(gzipped.getInputStream())) {
+            assertThat(gzipped.getHeaderField("Content-Encoding"), is(equalTo("gzip")));
+            assertThat(gzipped.getHeaderField("ETag"), startsWith("W/"));
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8), containsString("\"Compressed99\""));
+        } finally {
+            gzipped.disconnect();
+        }
+
+        // NDJSON é escrito depois da primeira despachada, pela resposta assíncrona
+        HttpURLConnection ndjson = open("/api/v1/beers", "gzip");
+        ndjson.setRequestProperty("Accept", "application/x-ndjson");
+        try (InputStream body = new GZIPInputStream(ndjson.getInputStream())) {
+            assertThat(ndjson.getHeaderField("Content-Encoding"), is(equalTo("gzip")));
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8), containsString("\"Compressed99\""));
+        } finally {
+            ndjson.disconnect();
+        }
+
+        HttpURLConnection identity = open("/api/v1/beers", null);
+        try (InputStream body = identity.getInputStream()) {
+            assertThat(identity.getHeaderField("Content-Encoding"), is(nullValue()));
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8), containsString("\"Compressed99\""));
+        } finally {
+            identity.disconnect();
+        }
+    }
+
+    @Test
+    void whenResponseIsBelowTheThresholdThenItIsNotCompressed() throws Exception {
+        beerService.createBeer(BeerDTOBuilder.builder().id(null).name("SmallResponse").build().toBeerDTO());
+
+        HttpURLConnection connection = open("/api/v1/beers/SmallResponse", "gzip");
+        try (InputStream body = connection.getInputStream()) {
+            assertThat(connection.getHeaderField("Content-Encoding"), is(nullValue()));
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8), containsString("\"SmallResponse\""));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String path, String acceptEncoding) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestProperty("Accept", "application/json");
+        if (acceptEncoding != null) {
+            connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,36 @@
+package juan.beerstockapi.config;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.service.BeerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+// perfil startup: o controller só nasce no primeiro uso, mas o que roda em segundo plano sobe junto
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("startup")
+public class StartupProfileTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Test
+    void whenStartupProfileIsActiveThenOnlyBackgroundServicesAreCreatedEagerly() throws Exception {
+        assertThat(beanFactory.containsSingleton("beerController"), is(false));
+        assertThat(beanFactory.containsSingleton("reservationService"), is(true));
+        assertThat(beanFactory.containsSingleton("stockHistoryService"), is(true));
+
+        beerService.createBeer(BeerDTOBuilder.builder().id(null).name("LazyStartup").build().toBeerDTO());
+
+        assertThat(beerService.findByName("LazyStartup").getQuantity(), is(equalTo(10)));
+    }
+}
@@ -0,0 +1,39 @@
+package juan.beerstockapi.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadConfigTest {
+
+    private static final int VIRTUAL_THREADS_RELEASE = 21;
+
+    @Test
+    void whenRunningOnJava21ThenRequestsRunOnVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= VIRTUAL_THREADS_RELEASE);
+
+        ExecutorService executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor();
+        try {
+            Object isVirtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(isVirtual, is(true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void whenRunningBeforeJava21ThenStartupFailsWithClearMessage() {
+        assumeTrue(Runtime.version().feature() < VIRTUAL_THREADS_RELEASE);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                VirtualThreadConfig::newVirtualThreadPerTaskExecutor);
+        assertThat(exception.getMessage().contains("Java 21"), is(true));
+    }
+}
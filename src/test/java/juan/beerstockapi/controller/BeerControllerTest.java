@@ -1,32 +1,82 @@
 package juan.beerstockapi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import juan.beerstockapi.builder.BeerDTOBuilder;
 import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.BeerFilterDTO;
+import juan.beerstockapi.dto.BeerImportErrorDTO;
+import juan.beerstockapi.dto.BeerImportResultDTO;
+import juan.beerstockapi.dto.BeerStatsDTO;
+import juan.beerstockapi.dto.BeerStockDTO;
+import juan.beerstockapi.dto.BeerTotalDTO;
+import juan.beerstockapi.dto.PointInTimeStockDTO;
 import juan.beerstockapi.dto.QuantityDTO;
+import juan.beerstockapi.dto.ReservationDTO;
+import juan.beerstockapi.dto.ReservationRequestDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.dto.StockMovementEntryDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.dto.StockMovementResultDTO;
+import juan.beerstockapi.dto.WarehouseStockDTO;
+import juan.beerstockapi.enums.BeerType;
+import juan.beerstockapi.enums.StockMovementMode;
+import juan.beerstockapi.enums.StockMovementStatus;
 import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
 import juan.beerstockapi.exception.BeerStockEmptyException;
 import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.BeerStockUnavailableException;
+import juan.beerstockapi.exception.ReservationNotFoundException;
+import juan.beerstockapi.exception.StockMovementRejectedException;
+import juan.beerstockapi.exception.WarehouseStockNotFoundException;
+import juan.beerstockapi.event.StockAlertBroadcaster;
+import juan.beerstockapi.protobuf.BeerProtobufReader;
+import juan.beerstockapi.protobuf.BeerProtobufWriter;
+import juan.beerstockapi.service.BeerImportService;
 import juan.beerstockapi.service.BeerService;
+import juan.beerstockapi.service.CatalogResponseCache;
+import juan.beerstockapi.service.IdempotencyStore;
+import juan.beerstockapi.service.ReservationService;
+import juan.beerstockapi.service.StockHistoryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.function.Consumer;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.*;
 import static juan.beerstockapi.utils.JsonConvertionUtils.asJsonString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +88,8 @@ public class BeerControllerTest {
     private static final long INVALID_BEER_ID = 2l;
     private static final String BEER_API_SUBPATH_INCREMENT_URL = "/increment";
     private static final String BEER_API_SUBPATH_DECREMENT_URL = "/decrement";
+    private static final String BEER_API_SUBPATH_STOCK_MOVEMENTS_URL = "/stock-movements";
+    private static final String BEER_API_SUBPATH_IMPORT_URL = "/import";
 
     private MockMvc mockMvc;
 
@@ -45,6 +97,27 @@ public class BeerControllerTest {
     @Mock
     private BeerService beerService;
 
+    @Mock
+    private BeerImportService beerImportService;
+
+    @Mock
+    private StockAlertBroadcaster stockAlertBroadcaster;
+
+    @Mock
+    private CatalogResponseCache catalogResponseCache;
+
+    @Mock
+    private ReservationService reservationService;
+
+    @Mock
+    private StockHistoryService stockHistoryService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private IdempotencyStore idempotencyStore = new IdempotencyStore(100, Duration.ofMinutes(1));
+
     // injeta mock no controller
     @InjectMocks
     private BeerController beerController;
@@ -80,6 +153,30 @@ public class BeerControllerTest {
 
     }
 
+    // POST: importação em CSV, devolve o relatório com as linhas rejeitadas
+    @Test
+    void whenPOSTImportIsCalledWithCsvThenImportReportIsReturned() throws Exception {
+        // given
+        BeerImportResultDTO importResult = BeerImportResultDTO.builder()
+                .imported(1L)
+                .rejected(1L)
+                .errors(singletonList(new BeerImportErrorDTO(3L, "Brahma", "Beer with name Brahma already registered in the system.")))
+                .errorsTruncated(false)
+                .build();
+
+        // when
+        when(beerImportService.importCsv(any())).thenReturn(importResult);
+
+        // then
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_IMPORT_URL)
+                        .contentType("text/csv")
+                        .content("name,brand,max,quantity,type\nSkol,Ambev,50,10,LAGER\nBrahma,Ambev,50,10,LAGER\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(1)))
+                .andExpect(jsonPath("$.errors[0].row", is(3)))
+                .andExpect(jsonPath("$.errors[0].name", is("Brahma")));
+    }
+
     // POST com falta de argumentos
     @Test
     void whenPOSTIsCalledWithoutRequiredArgumentsThenAnErrorIsReturned() throws Exception{
@@ -170,6 +267,219 @@ public class BeerControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void whenGETIsCalledWithTheCurrentETagThenNotModifiedStatusIsReturned() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().version(3L).build().toBeerDTO();
+
+        when(beerService.findByName(beerDTO.getName())).thenReturn(beerDTO);
+        when(beerService.versionTag(beerDTO.getName())).thenReturn("1-3");
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + beerDTO.getName()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1-3\""))
+                .andExpect(jsonPath("$.version", is(3)));
+        verify(beerService, never()).versionTag(beerDTO.getName());
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + beerDTO.getName())
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        // o 304 sai só com a versão, sem carregar a cerveja
+        verify(beerService, times(1)).findByName(beerDTO.getName());
+    }
+
+    @Test
+    void whenGETIsCalledWithAnOutdatedETagThenTheBeerIsReturnedWithTheCurrentETag() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().version(4L).build().toBeerDTO();
+
+        when(beerService.versionTag(beerDTO.getName())).thenReturn("1-4");
+        when(beerService.findByName(beerDTO.getName())).thenReturn(beerDTO);
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + beerDTO.getName())
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"1-3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1-4\""))
+                .andExpect(jsonPath("$.version", is(4)));
+    }
+
+    @Test
+    void whenGETListIsCalledWithTheCurrentCatalogETagThenTheListIsNotQueried() throws Exception {
+        when(beerService.catalogVersion()).thenReturn("epoch-7");
+
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/\"epoch-7\""))
+                .andExpect(status().isNotModified());
+        verify(beerService, never()).listAll();
+    }
+
+    @Test
+    void whenGETListIsCalledWithPrecomputedCatalogThenTheSnapshotBytesAreReturned() throws Exception {
+        byte[] json = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = {31, -117, 8};
+
+        when(catalogResponseCache.isEnabled()).thenReturn(true);
+        when(catalogResponseCache.acceptsGzip(null)).thenReturn(false);
+        when(catalogResponseCache.acceptsGzip("gzip, deflate")).thenReturn(true);
+        when(catalogResponseCache.current()).thenReturn(new CatalogResponseCache.Snapshot("epoch-7", json, gzip));
+
+        mockMvc.perform(get(BEER_API_URL_PATH))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(json));
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"epoch-7-gzip\""))
+                .andExpect(content().bytes(gzip));
+        verify(beerService, never()).listAll();
+    }
+
+    @Test
+    void whenPrecomputedCatalogIsBelowTheCompressionThresholdThenTheJsonIsReturnedUncompressed() throws Exception {
+        byte[] json = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+
+        when(catalogResponseCache.isEnabled()).thenReturn(true);
+        when(catalogResponseCache.current()).thenReturn(new CatalogResponseCache.Snapshot("epoch-7", json, null));
+
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"epoch-7\""))
+                .andExpect(content().bytes(json));
+        verify(catalogResponseCache, never()).acceptsGzip(anyString());
+    }
+
+    @Test
+    void whenGETListWithPageParametersIsCalledThenAPageIsReturned() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().id(2L).build().toBeerDTO();
+
+        when(beerService.listPage(VALID_BEER_ID, 1)).thenReturn(singletonList(beerDTO));
+
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                        .param("afterId", String.valueOf(VALID_BEER_ID))
+                        .param("size", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(2)));
+        verify(beerService, never()).listAll();
+    }
+
+    @Test
+    void whenGETFilterIsCalledThenQueryParamsAreBoundToTheFilter() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().type(BeerType.STOUT).build().toBeerDTO();
+        BeerFilterDTO expectedFilter = BeerFilterDTO.builder()
+                .type(BeerType.STOUT)
+                .lowStockThreshold(5)
+                .build();
+
+        when(beerService.filter(expectedFilter, null, null)).thenReturn(singletonList(beerDTO));
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/filter")
+                        .param("type", "STOUT")
+                        .param("lowStockThreshold", "5")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type", is("STOUT")));
+    }
+
+    @Test
+    void whenGETFilterIsCalledWithNegativeQuantityThenAnErrorIsReturned() throws Exception {
+        mockMvc.perform(get(BEER_API_URL_PATH + "/filter")
+                        .param("minQuantity", "-1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenGETStatsIsCalledThenTotalsAreReturned() throws Exception {
+        BeerStatsDTO stats = new BeerStatsDTO(
+                singletonList(new BeerTotalDTO("STOUT", 2L, 32L, 90L)),
+                singletonList(new BeerTotalDTO("Ambev", 2L, 32L, 90L)));
+
+        when(beerService.stats(BeerFilterDTO.builder().type(BeerType.STOUT).build())).thenReturn(stats);
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/stats")
+                        .param("type", "STOUT")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.byType[0].units", is(32)))
+                .andExpect(jsonPath("$.byBrand[0].group", is("Ambev")));
+    }
+
+    @Test
+    void whenGETEventsIsCalledThenAnEventStreamIsOpened() throws Exception {
+        when(stockAlertBroadcaster.subscribe()).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/events")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void whenGETSearchIsCalledThenBeersWithThePrefixAreReturned() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        when(beerService.searchByPrefix("bra", 5)).thenReturn(singletonList(beerDTO));
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/search")
+                        .param("prefix", "bra")
+                        .param("limit", "5")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is(beerDTO.getName())));
+    }
+
+    @Test
+    void whenGETListIsCalledAcceptingNdjsonThenBeersAreStreamedOnePerLine() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        BeerDTO otherBeerDTO = BeerDTOBuilder.builder().id(2L).name("Skol").build().toBeerDTO();
+
+        doAnswer(invocation -> {
+            Consumer<BeerDTO> consumer = invocation.getArgument(0);
+            consumer.accept(beerDTO);
+            consumer.accept(otherBeerDTO);
+            return null;
+        }).when(beerService).streamAll(any());
+
+        MvcResult mvcResult = mockMvc.perform(get(BEER_API_URL_PATH)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(asJsonString(beerDTO) + "\n" + asJsonString(otherBeerDTO) + "\n"));
+    }
+
+    @Test
+    void whenGETListIsCalledAcceptingProtobufThenBeersAreStreamedAsDelimitedMessages() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().version(3L).build().toBeerDTO();
+        BeerDTO otherBeerDTO = BeerDTOBuilder.builder().id(2L).name("Skol").version(1L).build().toBeerDTO();
+
+        doAnswer(invocation -> {
+            Consumer<BeerDTO> consumer = invocation.getArgument(0);
+            consumer.accept(beerDTO);
+            consumer.accept(otherBeerDTO);
+            return null;
+        }).when(beerService).streamAll(any());
+
+        MvcResult mvcResult = mockMvc.perform(get(BEER_API_URL_PATH)
+                        .accept(BeerProtobufWriter.MEDIA_TYPE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BeerProtobufWriter.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        BeerProtobufReader reader = new BeerProtobufReader(new ByteArrayInputStream(body));
+        assertThat(reader.read(), is(beerDTO));
+        assertThat(reader.read(), is(otherBeerDTO));
+        assertThat(reader.read(), is(nullValue()));
+    }
+
     // DELETE
         //DELETE com valid name -> retorno noContent()
         //DELETE com invalid name -> retorno notFound()
@@ -255,6 +565,20 @@ public class BeerControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void whenPATCHIsCalledToIncrementWithNonPositiveQuantityThenBadRequestStatusIsReturned() throws Exception {
+        QuantityDTO quantityDTO = QuantityDTO.builder()
+                .quantity(-5)
+                .build();
+
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_INCREMENT_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(quantityDTO)))
+                .andExpect(status().isBadRequest());
+
+        verify(beerService, never()).increment(anyLong(), anyInt());
+    }
+
     @Test
     void whenPATCHIsCalledWithInvalidBeerIdToIncrementThenNotFoundStatusIsReturned() throws Exception {
         QuantityDTO quantityDTO = QuantityDTO.builder()
@@ -268,6 +592,19 @@ public class BeerControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void whenPATCHIsCalledToIncrementAndRetriesAreExhaustedThenConflictStatusIsReturned() throws Exception {
+        QuantityDTO quantityDTO = QuantityDTO.builder()
+                .quantity(5)
+                .build();
+
+        when(beerService.increment(VALID_BEER_ID, quantityDTO.getQuantity())).thenThrow(BeerStockConflictException.class);
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_INCREMENT_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(quantityDTO)))
+                .andExpect(status().isConflict());
+    }
+
         //decrement
     @Test
     void whenPATCHIsCalledToDecrementDiscountThenOKstatusIsReturned() throws Exception {
@@ -323,5 +660,250 @@ public class BeerControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void whenPATCHDecrementIsRetriedWithTheSameIdempotencyKeyThenStockIsDecrementedOnce() throws Exception {
+        QuantityDTO quantityDTO = QuantityDTO.builder()
+                .quantity(5)
+                .build();
+
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        beerDTO.setQuantity(beerDTO.getQuantity() - quantityDTO.getQuantity());
+
+        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity())).thenReturn(beerDTO);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
+                            .header(BeerController.IDEMPOTENCY_KEY_HEADER, "retried-decrement")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(asJsonString(quantityDTO)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.quantity", is(beerDTO.getQuantity())));
+        }
+        verify(beerService, times(1)).decrement(VALID_BEER_ID, quantityDTO.getQuantity());
+    }
+
+    @Test
+    void whenPATCHIsCalledWithAnIdempotencyKeyUsedForAnotherRequestThenUnprocessableEntityStatusIsReturned() throws Exception {
+        QuantityDTO quantityDTO = QuantityDTO.builder()
+                .quantity(5)
+                .build();
+
+        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity()))
+                .thenReturn(BeerDTOBuilder.builder().build().toBeerDTO());
+
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
+                        .header(BeerController.IDEMPOTENCY_KEY_HEADER, "reused-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(quantityDTO)))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_INCREMENT_URL)
+                        .header(BeerController.IDEMPOTENCY_KEY_HEADER, "reused-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(quantityDTO)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void whenGETWarehousesIsCalledThenStockPerWarehouseIsReturned() throws Exception {
+        BeerStockDTO beerStockDTO = new BeerStockDTO(VALID_BEER_ID, "Brahma", 25, asList(
+                new WarehouseStockDTO(BeerService.DEFAULT_WAREHOUSE, 50, 10),
+                new WarehouseStockDTO("north", 50, 15)));
+
+        when(beerService.stockByWarehouse(VALID_BEER_ID)).thenReturn(beerStockDTO);
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/warehouses"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(25)))
+                .andExpect(jsonPath("$.warehouses[1].warehouse", is("north")));
+    }
+
+    @Test
+    void whenPOSTWarehouseIsCalledWithQuantityAboveMaxThenBadRequestStatusIsReturned() throws Exception {
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/warehouses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new WarehouseStockDTO("north", 10, 20))))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/warehouses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(new WarehouseStockDTO("north", -5, 0))))
+                .andExpect(status().isBadRequest());
+
+        verify(beerService, never()).addWarehouse(anyLong(), any(WarehouseStockDTO.class));
+    }
+
+    @Test
+    void whenPATCHIsCalledToIncrementAnUnknownWarehouseThenNotFoundStatusIsReturned() throws Exception {
+        QuantityDTO quantityDTO = QuantityDTO.builder()
+                .quantity(5)
+                .build();
+
+        when(beerService.incrementAt(VALID_BEER_ID, "south", quantityDTO.getQuantity())).thenThrow(WarehouseStockNotFoundException.class);
+
+        mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/warehouses/south" + BEER_API_SUBPATH_INCREMENT_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(quantityDTO)))
+                .andExpect(status().isNotFound());
+    }
+
+    // histórico
+        // movimentos no período -> ok
+        // estoque num instante -> ok
 
+    @Test
+    void whenGETMovementsIsCalledThenMovementsInTheRangeAreReturned() throws Exception {
+        Instant from = Instant.parse("2024-05-01T00:00:00Z");
+        Instant to = Instant.parse("2024-05-02T00:00:00Z");
+        when(stockHistoryService.movements(VALID_BEER_ID, from, to, null)).thenReturn(asList(
+                new StockMovementEntryDTO(10L, Instant.parse("2024-05-01T10:00:00Z")),
+                new StockMovementEntryDTO(-3L, Instant.parse("2024-05-01T18:00:00Z"))));
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/movements")
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].delta", is(-3)));
+    }
+
+    @Test
+    void whenGETStockAtIsCalledThenQuantityAtThatInstantIsReturned() throws Exception {
+        Instant at = Instant.parse("2024-05-01T18:00:00Z");
+        when(stockHistoryService.stockAt(VALID_BEER_ID, at)).thenReturn(new PointInTimeStockDTO(VALID_BEER_ID, at, 7L, null));
+
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/stock")
+                        .param("at", at.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", is(7)));
+    }
+
+    // reservas
+        // reserva criada -> created
+        // sem unidades disponíveis -> bad request
+        // confirmação -> ok com a cerveja
+        // reserva desconhecida -> not found
+
+    @Test
+    void whenPOSTReservationIsCalledThenCreatedStatusIsReturned() throws Exception {
+        ReservationRequestDTO request = ReservationRequestDTO.builder()
+                .quantity(3)
+                .build();
+        ReservationDTO reservation = new ReservationDTO(7L, VALID_BEER_ID, 3, Instant.parse("2030-01-01T00:00:00Z"));
+
+        when(reservationService.reserve(VALID_BEER_ID, request)).thenReturn(reservation);
+
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is(7)))
+                .andExpect(jsonPath("$.quantity", is(3)));
+    }
+
+    @Test
+    void whenPOSTReservationIsCalledWithoutAvailableStockThenBadRequestStatusIsReturned() throws Exception {
+        ReservationRequestDTO request = ReservationRequestDTO.builder()
+                .quantity(30)
+                .build();
+
+        when(reservationService.reserve(VALID_BEER_ID, request)).thenThrow(BeerStockUnavailableException.class);
+
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenPOSTConfirmIsCalledThenBeerWithoutReservedUnitsIsReturned() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().quantity(7).build().toBeerDTO();
+
+        when(reservationService.confirm(7L)).thenReturn(beerDTO);
+
+        mockMvc.perform(post(BEER_API_URL_PATH + "/reservations/7/confirm"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", is(7)))
+                .andExpect(jsonPath("$.available", is(7)));
+    }
+
+    @Test
+    void whenDELETEIsCalledWithUnknownReservationThenNotFoundStatusIsReturned() throws Exception {
+        doThrow(ReservationNotFoundException.class).when(reservationService).release(7L);
+
+        mockMvc.perform(delete(BEER_API_URL_PATH + "/reservations/7"))
+                .andExpect(status().isNotFound());
+    }
+
+    // POST stock-movements
+        // lote aplicado -> ok
+        // lote desfeito -> bad request com resultado de cada item
+
+    @Test
+    void whenPOSTStockMovementsIsCalledThenOkStatusIsReturned() throws Exception {
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.BEST_EFFORT)
+                .movements(singletonList(StockMovementDTO.builder().id(VALID_BEER_ID).delta(5).build()))
+                .build();
+        StockMovementResultDTO result = StockMovementResultDTO.builder()
+                .id(VALID_BEER_ID)
+                .delta(5)
+                .status(StockMovementStatus.APPLIED)
+                .build();
+
+        when(beerService.applyStockMovements(request)).thenReturn(singletonList(result));
+
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_STOCK_MOVEMENTS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is((int) VALID_BEER_ID)))
+                .andExpect(jsonPath("$[0].status", is(StockMovementStatus.APPLIED.toString())));
+    }
+
+    @Test
+    void whenPOSTStockMovementsIsRolledBackThenBadRequestStatusIsReturned() throws Exception {
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.ALL_OR_NOTHING)
+                .movements(singletonList(StockMovementDTO.builder().id(VALID_BEER_ID).delta(-50).build()))
+                .build();
+        StockMovementResultDTO result = StockMovementResultDTO.builder()
+                .id(VALID_BEER_ID)
+                .delta(-50)
+                .status(StockMovementStatus.STOCK_EMPTY)
+                .build();
+
+        when(beerService.applyStockMovements(request)).thenThrow(new StockMovementRejectedException(singletonList(result)));
+
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_STOCK_MOVEMENTS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$[0].status", is(StockMovementStatus.STOCK_EMPTY.toString())));
+    }
+
+    @Test
+    void whenPOSTStockMovementsIsCalledWithAZeroDeltaThenBadRequestStatusIsReturned() throws Exception {
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.BEST_EFFORT)
+                .movements(asList(
+                        StockMovementDTO.builder().id(VALID_BEER_ID).delta(5).build(),
+                        StockMovementDTO.builder().id(VALID_BEER_ID).delta(0).build()))
+                .build();
+
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_STOCK_MOVEMENTS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isBadRequest());
+        verify(beerService, never()).applyStockMovements(any());
+    }
+
+    @Test
+    void whenPOSTStockMovementsIsCalledWithoutModeThenBadRequestStatusIsReturned() throws Exception {
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .movements(singletonList(StockMovementDTO.builder().id(VALID_BEER_ID).delta(5).build()))
+                .build();
+
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_STOCK_MOVEMENTS_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(request)))
+                .andExpect(status().isBadRequest());
+    }
 }
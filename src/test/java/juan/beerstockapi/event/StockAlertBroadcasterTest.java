@@ -0,0 +1,206 @@
+package juan.beerstockapi.event;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.enums.StockLevel;
+import juan.beerstockapi.service.BeerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+// assinante de verdade, lendo o stream SSE pela porta HTTP; uma thread de envio só, para que
+// um assinante travado bastasse para parar todos os outros
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:events;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "beerstock.events.sender-threads=1",
+        "beerstock.events.send-timeout=PT0.5S"
+})
+public class StockAlertBroadcasterTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private StockAlertBroadcaster stockAlertBroadcaster;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void whenQuantityIsComparedToMaxThenLevelFollowsTheConfiguredRatios() {
+        assertThat(stockAlertBroadcaster.levelOf(10, 100), is(equalTo(StockLevel.LOW)));
+        assertThat(stockAlertBroadcaster.levelOf(11, 100), is(equalTo(StockLevel.NORMAL)));
+        assertThat(stockAlertBroadcaster.levelOf(89, 100), is(equalTo(StockLevel.NORMAL)));
+        assertThat(stockAlertBroadcaster.levelOf(90, 100), is(equalTo(StockLevel.HIGH)));
+    }
+
+    @Test
+    void whenStockCrossesAThresholdThenSubscribersReceiveAnAlert() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("AlertedBeer")
+                .max(100)
+                .quantity(50)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/v1/beers/events").openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        connection.setReadTimeout(10_000);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            // continua na faixa normal, não deve gerar alerta
+            beerService.decrement(id, 10);
+            beerService.decrement(id, 35);
+
+            // pula o heartbeat da inscrição
+            String line = reader.readLine();
+            while (!line.equals("event:" + StockAlertBroadcaster.ALERT_EVENT)) {
+                line = reader.readLine();
+            }
+            String data = reader.readLine();
+
+            assertThat(data, containsString("\"quantity\":5"));
+            assertThat(data, containsString("\"previousLevel\":\"NORMAL\""));
+            assertThat(data, containsString("\"level\":\"LOW\""));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void whenABatchOfStockMovementsCrossesAThresholdThenSubscribersReceiveAnAlert() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("BatchAlertedBeer")
+                .max(100)
+                .quantity(50)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/v1/beers/events").openConnection();
+        connection.setRequestProperty("Accept", "text/event-stream");
+        connection.setReadTimeout(10_000);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            // desfeito pelo movimento recusado: o alerta do primeiro não pode sair
+            assertThat(postStockMovements("{\"mode\":\"ALL_OR_NOTHING\",\"movements\":[{\"id\":" + id + ",\"delta\":-45}," +
+                    "{\"id\":" + id + ",\"delta\":-10}]}"), is(equalTo(400)));
+            // só o segundo movimento muda de faixa; o da cerveja inexistente é recusado
+            assertThat(postStockMovements("{\"mode\":\"BEST_EFFORT\",\"movements\":[{\"id\":" + id + ",\"delta\":-10}," +
+                    "{\"id\":" + id + ",\"delta\":-35},{\"id\":" + (id + 1000) + ",\"delta\":5}]}"), is(equalTo(200)));
+
+            String line = reader.readLine();
+            while (!line.equals("event:" + StockAlertBroadcaster.ALERT_EVENT)) {
+                line = reader.readLine();
+            }
+            String data = reader.readLine();
+
+            assertThat(data, containsString("\"name\":\"BatchAlertedBeer\""));
+            assertThat(data, containsString("\"warehouse\":\"" + BeerService.DEFAULT_WAREHOUSE + "\""));
+            assertThat(data, containsString("\"quantity\":5"));
+            assertThat(data, containsString("\"previousLevel\":\"NORMAL\""));
+            assertThat(data, containsString("\"level\":\"LOW\""));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void whenASubscriberStopsReadingThenTheOthersKeepReceivingAlerts() throws Exception {
+        double stalledBefore = meterRegistry.counter(StockAlertBroadcaster.STALLED_COUNTER).count();
+
+        // assinante que lê só os headers e para: com a janela TCP pequena, o envio fica preso
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(4096);
+            stalled.connect(new InetSocketAddress("localhost", port));
+            stalled.getOutputStream().write(("GET /api/v1/beers/events HTTP/1.1\r\nHost: localhost\r\n" +
+                    "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            skipHeaders(stalled.getInputStream());
+
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/v1/beers/events").openConnection();
+            connection.setRequestProperty("Accept", "text/event-stream");
+            connection.setReadTimeout(10_000);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                // o assinante saudável lê o tempo todo
+                Future<Boolean> healthy = executor.submit(() -> {
+                    String line = reader.readLine();
+                    while (!line.contains("\"AfterStall\"")) {
+                        line = reader.readLine();
+                    }
+                    return true;
+                });
+
+                // alertas grandes o bastante para encher os buffers do assinante parado
+                String largeName = "x".repeat(64 * 1024);
+                for (int i = 0; i < 256; i++) {
+                    stockAlertBroadcaster.onStockChanged(new StockChangedEvent((long) i, largeName, BeerService.DEFAULT_WAREHOUSE, 50, 5, 100));
+                }
+                long deadline = System.currentTimeMillis() + 5000;
+                while (meterRegistry.counter(StockAlertBroadcaster.STALLED_COUNTER).count() <= stalledBefore
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+                assertThat(meterRegistry.counter(StockAlertBroadcaster.STALLED_COUNTER).count(), is(greaterThan(stalledBefore)));
+
+                // a única thread de envio continua presa no assinante parado
+                stockAlertBroadcaster.onStockChanged(new StockChangedEvent(-1L, "AfterStall", BeerService.DEFAULT_WAREHOUSE, 50, 5, 100));
+
+                assertThat(healthy.get(10, TimeUnit.SECONDS), is(true));
+            } finally {
+                executor.shutdownNow();
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static void skipHeaders(InputStream input) throws Exception {
+        int matched = 0;
+        byte[] end = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        while (matched < end.length) {
+            int read = input.read();
+            if (read < 0) {
+                throw new IllegalStateException("Connection closed before the response headers");
+            }
+            matched = read == end[matched] ? matched + 1 : (read == end[0] ? 1 : 0);
+        }
+    }
+
+    private int postStockMovements(String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/api/v1/beers/stock-movements").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try {
+            connection.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
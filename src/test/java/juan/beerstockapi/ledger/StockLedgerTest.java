@@ -0,0 +1,78 @@
+package juan.beerstockapi.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class StockLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void whenLedgerIsReopenedThenUnflushedDeltasAreSummedPerBeer() throws IOException {
+        StockLedger ledger = new StockLedger(directory, true);
+        ledger.recover(0);
+        ledger.append(1L, 10);
+        ledger.append(2L, 3);
+        ledger.append(1L, -4);
+        ledger.close();
+
+        StockLedger.Recovery recovery = new StockLedger(directory, true).recover(0);
+
+        assertThat(recovery.getLastSegment(), is(equalTo(1L)));
+        assertThat(recovery.getDeltas(), is(equalTo(Map.of(1L, 6L, 2L, 3L))));
+    }
+
+    @Test
+    void whenSegmentIsCoveredByCheckpointThenItIsNotReplayed() throws IOException {
+        StockLedger ledger = new StockLedger(directory, true);
+        ledger.recover(0);
+        ledger.append(1L, 10);
+        long flushedSegment = ledger.rotate();
+        ledger.append(1L, 5);
+        ledger.close();
+
+        StockLedger.Recovery recovery = new StockLedger(directory, true).recover(flushedSegment);
+
+        assertThat(recovery.getLastSegment(), is(equalTo(2L)));
+        assertThat(recovery.getDeltas(), is(equalTo(Map.of(1L, 5L))));
+    }
+
+    @Test
+    void whenLastRecordIsTornThenItIsDiscarded() throws IOException {
+        StockLedger ledger = new StockLedger(directory, true);
+        ledger.recover(0);
+        ledger.append(1L, 10);
+        ledger.close();
+        Files.write(directory.resolve("stock-1.ledger"), new byte[]{0, 0, 0, 0, 0, 0, 0, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        StockLedger.Recovery recovery = new StockLedger(directory, true).recover(0);
+
+        assertThat(recovery.getDeltas(), is(equalTo(Map.of(1L, 10L))));
+    }
+
+    @Test
+    void whenSegmentsAreDeletedThenNothingIsReplayed() throws IOException {
+        StockLedger ledger = new StockLedger(directory, true);
+        ledger.recover(0);
+        ledger.append(1L, 10);
+        long flushedSegment = ledger.rotate();
+        ledger.deleteUpTo(flushedSegment);
+        ledger.close();
+
+        StockLedger.Recovery recovery = new StockLedger(directory, true).recover(0);
+
+        assertThat(recovery.getDeltas(), is(anEmptyMap()));
+    }
+}
@@ -0,0 +1,83 @@
+package juan.beerstockapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.service.BeerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BeerServiceMetricsAspectTest {
+
+    @Mock
+    private BeerService beerService;
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private BeerService measuredBeerService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(beerService);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new BeerServiceMetricsAspect(meterRegistry, beerRepository));
+        measuredBeerService = proxyFactory.getProxy();
+    }
+
+    @Test
+    void whenOperationSucceedsThenSuccessTimerIsRecorded() throws BeerNotFoundException {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerService.findByName(beerDTO.getName())).thenReturn(beerDTO);
+
+        measuredBeerService.findByName(beerDTO.getName());
+
+        assertThat(meterRegistry.get(BeerServiceMetricsAspect.OPERATION_TIMER)
+                .tag("operation", "findByName")
+                .tag("outcome", "success")
+                .timer()
+                .count(), is(equalTo(1L)));
+    }
+
+    @Test
+    void whenOperationThrowsThenErrorTimerAndExceptionCounterAreRecorded() throws Exception {
+        when(beerService.increment(1L, 80)).thenThrow(BeerStockExceededException.class);
+
+        assertThrows(BeerStockExceededException.class, () -> measuredBeerService.increment(1L, 80));
+
+        assertThat(meterRegistry.get(BeerServiceMetricsAspect.OPERATION_TIMER)
+                .tag("operation", "increment")
+                .tag("outcome", "error")
+                .timer()
+                .count(), is(equalTo(1L)));
+        assertThat(meterRegistry.get(BeerServiceMetricsAspect.EXCEPTION_COUNTER)
+                .tag("exception", BeerStockExceededException.class.getSimpleName())
+                .counter()
+                .count(), is(equalTo(1.0)));
+    }
+
+    @Test
+    void whenStockUnitsAreScrapedThenTheRepositorySumIsReported() {
+        when(beerRepository.sumQuantity()).thenReturn(42L);
+
+        assertThat(meterRegistry.get(BeerServiceMetricsAspect.STOCK_UNITS_GAUGE).gauge().value(), is(equalTo(42.0)));
+    }
+}
@@ -0,0 +1,64 @@
+package juan.beerstockapi.protobuf;
+
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.enums.BeerType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BeerProtobufWriterTest {
+
+    @Test
+    void whenBeerIsWrittenThenBytesFollowTheDelimitedProtobufWireFormat() throws Exception {
+        BeerDTO beerDTO = BeerDTO.builder()
+                .id(1L).name("A").brand("B").max(50).quantity(10).type(BeerType.STOUT).reserved(0)
+                .build();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new BeerProtobufWriter(outputStream).write(beerDTO);
+
+        // tamanho 14; id=1, name="A", brand="B", max=50, quantity=10, type=6; version e reserved omitidos
+        byte[] expected = {14, 0x08, 1, 0x12, 1, 'A', 0x1A, 1, 'B', 0x20, 50, 0x28, 10, 0x30, 6};
+        assertThat(outputStream.toByteArray(), is(equalTo(expected)));
+    }
+
+    @Test
+    void whenBeersAreWrittenThenReaderReadsThemBackInOrder() throws Exception {
+        BeerDTO beerDTO = BeerDTO.builder()
+                .id(5_000_000_000L).name("Cerveja São João").brand("Brahma").max(500).quantity(100)
+                .type(BeerType.IPA).version(42L).reserved(7)
+                .build();
+        BeerDTO lagerDTO = BeerDTO.builder()
+                .id(2L).name("Skol").brand("Ambev").max(50).quantity(0).type(BeerType.LAGER).version(0L).reserved(0)
+                .build();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BeerProtobufWriter writer = new BeerProtobufWriter(outputStream);
+        writer.write(beerDTO);
+        writer.write(lagerDTO);
+
+        BeerProtobufReader reader = new BeerProtobufReader(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(reader.read(), is(equalTo(beerDTO)));
+        assertThat(reader.read(), is(equalTo(lagerDTO)));
+        assertThat(reader.read(), is(nullValue()));
+    }
+
+    @Test
+    void whenMessageHasUnknownFieldsThenReaderSkipsThem() throws Exception {
+        // id=3, campo 9 varint, campo 10 string, campo 11 fixed32, name="X"
+        byte[] message = {15, 0x08, 3, 0x48, (byte) 0x96, 1, 0x52, 2, 'h', 'i', 0x5D, 1, 2, 3, 4, 0x12, 1, 'X'};
+        message[0] = (byte) (message.length - 1);
+
+        BeerDTO beerDTO = new BeerProtobufReader(new ByteArrayInputStream(message)).read();
+
+        assertThat(beerDTO.getId(), is(equalTo(3L)));
+        assertThat(beerDTO.getName(), is(equalTo("X")));
+        assertThat(beerDTO.getType(), is(equalTo(BeerType.LAGER)));
+    }
+}
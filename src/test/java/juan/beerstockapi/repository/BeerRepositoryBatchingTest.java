@@ -0,0 +1,80 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.enums.BeerType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+// com ids de sequence os inserts entram no batch: poucas idas ao banco para muitas linhas
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batching;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class BeerRepositoryBatchingTest {
+
+    private static final int ROWS = 200;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void whenBeersAreInsertedTogetherThenInsertsAreBatched() {
+        List<Beer> beers = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            beers.add(new Beer(null, "Batched " + i, "Brand", 50, 10, BeerType.LAGER, null, null, 0));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> beerRepository.insertAll(beers));
+
+        assertThat(statistics.getEntityInsertCount(), is(equalTo((long) ROWS)));
+        // ROWS / batch_size statements de insert, mais uma chamada à sequence a cada ALLOCATION_SIZE ids
+        long expectedStatements = ROWS / 50 + ROWS / Beer.ALLOCATION_SIZE + 1;
+        assertThat(statistics.getPrepareStatementCount(), is(lessThanOrEqualTo(expectedStatements)));
+        assertThat(beerRepository.findByName("Batched " + (ROWS - 1)).isPresent(), is(true));
+    }
+
+    @Test
+    void whenAddedQuantityLeavesTheLimitsThenTheRowIsRejected() {
+        Beer withinLimits = beerRepository.save(new Beer(null, "Added within", "Brand", 50, 10, BeerType.LAGER, null, null, 0));
+        Beer aboveMax = beerRepository.save(new Beer(null, "Added above max", "Brand", 50, 10, BeerType.LAGER, null, null, 0));
+        Beer belowReserved = beerRepository.save(new Beer(null, "Added below reserved", "Brand", 50, 10, BeerType.LAGER, null, null, 4));
+
+        List<Long> rejectedIds = new TransactionTemplate(transactionManager).execute(status -> beerRepository.addToQuantities(Map.of(
+                withinLimits.getId(), 5L,
+                aboveMax.getId(), 41L,
+                belowReserved.getId(), -7L), Map.of(
+                withinLimits.getId(), 2L,
+                aboveMax.getId(), 1L,
+                belowReserved.getId(), 1L)));
+
+        assertThat(rejectedIds, containsInAnyOrder(aboveMax.getId(), belowReserved.getId()));
+        assertThat(beerRepository.findById(withinLimits.getId()).get().getQuantity(), is(equalTo(15)));
+        assertThat(beerRepository.findById(withinLimits.getId()).get().getVersion(), is(equalTo(withinLimits.getVersion() + 2)));
+        assertThat(beerRepository.findById(aboveMax.getId()).get().getQuantity(), is(equalTo(10)));
+        assertThat(beerRepository.findById(belowReserved.getId()).get().getQuantity(), is(equalTo(10)));
+    }
+}
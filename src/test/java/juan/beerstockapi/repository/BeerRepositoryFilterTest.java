@@ -0,0 +1,99 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.dto.BeerFilterDTO;
+import juan.beerstockapi.dto.BeerTotalDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.enums.BeerType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+// usa marcas próprias, porque o contexto (e o banco) é compartilhado com outros testes
+@SpringBootTest
+public class BeerRepositoryFilterTest {
+
+    private static final String STOUT_BRAND = "Filter Stout Brand";
+    private static final String OTHER_BRAND = "Filter Other Brand";
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @BeforeEach
+    void setUp() {
+        if (beerRepository.findByName("Filter Stout 1").isPresent()) {
+            return;
+        }
+        beerRepository.saveAll(asList(
+                new Beer(null, "Filter Stout 1", STOUT_BRAND, 50, 2, BeerType.STOUT, null, null, 0),
+                new Beer(null, "Filter Stout 2", STOUT_BRAND, 40, 30, BeerType.STOUT, null, null, 0),
+                new Beer(null, "Filter Stout 3", OTHER_BRAND, 20, 8, BeerType.STOUT, null, null, 0),
+                new Beer(null, "Filter Ipa 1", OTHER_BRAND, 60, 1, BeerType.IPA, null, null, 0)));
+    }
+
+    @Test
+    void whenFilteredByBrandAndLowStockThenOnlyMatchingBeersAreReturned() {
+        BeerFilterDTO filter = BeerFilterDTO.builder()
+                .brand(OTHER_BRAND)
+                .lowStockThreshold(10)
+                .build();
+
+        List<Beer> beers = beerRepository.findFirstById(BeerSpecifications.matching(filter)
+                .and(BeerSpecifications.idGreaterThan(0L)), 10);
+
+        assertThat(names(beers), contains("Filter Stout 3", "Filter Ipa 1"));
+    }
+
+    @Test
+    void whenFilteredByQuantityRangeThenLimitIsRespected() {
+        BeerFilterDTO filter = BeerFilterDTO.builder()
+                .type(BeerType.STOUT)
+                .minQuantity(2)
+                .maxQuantity(30)
+                .build();
+
+        List<Beer> beers = beerRepository.findFirstById(BeerSpecifications.matching(filter)
+                .and(BeerSpecifications.idGreaterThan(0L)), 2);
+
+        assertThat(names(beers), contains("Filter Stout 1", "Filter Stout 2"));
+    }
+
+    @Test
+    void whenTotalsAreGroupedByBrandThenUnitsAreSummedInTheDatabase() {
+        BeerFilterDTO filter = BeerFilterDTO.builder()
+                .type(BeerType.STOUT)
+                .build();
+
+        List<BeerTotalDTO> totals = beerRepository.totalsBy("brand", BeerSpecifications.matching(filter)).stream()
+                .filter(total -> total.getGroup().startsWith("Filter "))
+                .collect(Collectors.toList());
+
+        assertThat(totals, contains(
+                new BeerTotalDTO(OTHER_BRAND, 1L, 8L, 20L),
+                new BeerTotalDTO(STOUT_BRAND, 2L, 32L, 90L)));
+    }
+
+    @Test
+    void whenTotalsAreGroupedByTypeThenEveryTypeWithBeersIsListed() {
+        BeerFilterDTO filter = BeerFilterDTO.builder()
+                .brand(OTHER_BRAND)
+                .build();
+
+        List<BeerTotalDTO> totals = beerRepository.totalsBy("type", BeerSpecifications.matching(filter));
+
+        assertThat(totals, contains(
+                new BeerTotalDTO("IPA", 1L, 1L, 60L),
+                new BeerTotalDTO("STOUT", 1L, 8L, 20L)));
+    }
+
+    private static List<String> names(List<Beer> beers) {
+        return beers.stream().map(Beer::getName).collect(Collectors.toList());
+    }
+}
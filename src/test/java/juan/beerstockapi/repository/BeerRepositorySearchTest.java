@@ -0,0 +1,46 @@
+package juan.beerstockapi.repository;
+
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.enums.BeerType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest
+public class BeerRepositorySearchTest {
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Test
+    void whenBeerIsSavedThenSearchNameIgnoresCaseAndAccents() {
+        Beer savedBeer = beerRepository.save(new Beer(null, "Cerveja Çanção", "Brand", 50, 10, BeerType.LAGER, null, null, 0));
+
+        assertThat(savedBeer.getSearchName(), is("cerveja cancao"));
+    }
+
+    @Test
+    void whenPrefixIsSearchedThenMatchingBeersAreReturnedInNameOrder() {
+        beerRepository.saveAll(asList(
+                new Beer(null, "Prefix Zeta", "Brand", 50, 10, BeerType.LAGER, null, null, 0),
+                new Beer(null, "PREFIX Alfa", "Brand", 50, 10, BeerType.LAGER, null, null, 0),
+                new Beer(null, "Prefix_Other", "Brand", 50, 10, BeerType.LAGER, null, null, 0),
+                new Beer(null, "Other Prefix", "Brand", 50, 10, BeerType.LAGER, null, null, 0)));
+
+        List<String> names = beerRepository.findBySearchNameStartingWithOrderBySearchNameAsc("prefix ", PageRequest.of(0, 10))
+                .stream()
+                .map(Beer::getName)
+                .collect(Collectors.toList());
+
+        assertThat(names, contains("PREFIX Alfa", "Prefix Zeta"));
+    }
+}
@@ -0,0 +1,66 @@
+package juan.beerstockapi.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BeerCacheTest {
+
+    private BeerCache beerCache;
+
+    @BeforeEach
+    void setUp() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(BeerCache.BEER_IDS_BY_NAME, BeerCache.BEERS_BY_ID);
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100));
+        beerCache = new BeerCache(cacheManager);
+    }
+
+    @Test
+    void whenBeerIsPutThenItIsFoundByName() {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        beerCache.put(beerDTO, beerCache.stamp());
+
+        assertThat(beerCache.get(beerDTO.getName()), is(equalTo(beerDTO)));
+    }
+
+    @Test
+    void whenBeerIdIsEvictedThenItIsNotFoundByName() {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        beerCache.put(beerDTO, beerCache.stamp());
+
+        beerCache.evict(beerDTO.getId());
+
+        assertThat(beerCache.get(beerDTO.getName()), is(nullValue()));
+    }
+
+    @Test
+    void whenBeerIsEvictedWhileBeingReadThenTheReadValueIsNotCached() {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        // a leitura começa, a cerveja é alterada e invalidada, e só então a leitura termina
+        long stamp = beerCache.stamp();
+        beerCache.evict(beerDTO.getId());
+        beerCache.put(beerDTO, stamp);
+
+        assertThat(beerCache.get(beerDTO.getName()), is(nullValue()));
+    }
+
+    @Test
+    void whenAnyEntryIsInvalidatedThenCatalogVersionChanges() {
+        String initialVersion = beerCache.catalogVersion();
+
+        beerCache.evictName("New beer");
+
+        assertThat(beerCache.catalogVersion(), is(not(equalTo(initialVersion))));
+    }
+}
@@ -0,0 +1,43 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.dto.BeerImportResultDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+// importação contra o H2 embarcado, com mais linhas que um bloco
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:import;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+public class BeerImportIntegrationTest {
+
+    private static final int ROWS = 1200;
+
+    @Autowired
+    private BeerImportService beerImportService;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Test
+    void whenLargeCsvIsImportedThenEveryNewNameIsInsertedOnce() throws Exception {
+        StringBuilder csv = new StringBuilder("type,name,brand,max,quantity\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append("LAGER,Imported ").append(i).append(",Brand,50,").append(i % 50).append('\n');
+        }
+        // repete um nome de um bloco anterior
+        csv.append("LAGER,Imported 0,Brand,50,10\n");
+
+        BeerImportResultDTO result = beerImportService.importCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getImported(), is(equalTo((long) ROWS)));
+        assertThat(result.getRejected(), is(equalTo(1L)));
+        assertThat(result.getErrors().get(0).getRow(), is(equalTo(ROWS + 2L)));
+        assertThat(beerService.findByName("Imported 1199").getQuantity(), is(equalTo(1199 % 50)));
+    }
+}
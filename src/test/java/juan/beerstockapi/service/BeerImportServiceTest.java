@@ -0,0 +1,207 @@
+package juan.beerstockapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import juan.beerstockapi.dto.BeerImportErrorDTO;
+import juan.beerstockapi.dto.BeerImportResultDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.repository.BeerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BeerImportServiceTest {
+
+    private static final String CSV_HEADER = "name,brand,max,quantity,type\n";
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    @Mock
+    private BeerCache beerCache;
+
+    @Mock
+    private StockHistoryService stockHistory;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private BeerImportService beerImportService;
+
+    @BeforeEach
+    void setUp() {
+        beerImportService = new BeerImportService(beerRepository, beerCache, stockHistory, eventPublisher,
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionManager, new ObjectMapper(), 2, 2);
+    }
+
+    @Test
+    void whenValidCsvIsImportedThenRowsAreInsertedInChunks() throws Exception {
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.emptyList());
+
+        BeerImportResultDTO result = beerImportService.importCsv(csv(
+                "Brahma,Ambev,50,10,LAGER\n" +
+                "Skol,Ambev,50,10,IPA\n" +
+                "Bohemia,Ambev,50,10,ALE\n"));
+
+        assertThat(result.getImported(), is(equalTo(3L)));
+        assertThat(result.getRejected(), is(equalTo(0L)));
+        verify(beerRepository, times(2)).findNamesIn(anyCollection());
+        verify(beerRepository, times(2)).insertAll(any());
+    }
+
+    @Test
+    void whenCsvHasRegisteredOrRepeatedNamesThenTheyAreRejected() throws Exception {
+        // o segundo bloco já encontra no banco a Skol gravada pelo primeiro
+        when(beerRepository.findNamesIn(anyCollection()))
+                .thenReturn(Collections.singletonList("Brahma"), Collections.singletonList("Skol"));
+
+        BeerImportResultDTO result = beerImportService.importCsv(csv(
+                "Brahma,Ambev,50,10,LAGER\n" +
+                "Skol,Ambev,50,10,IPA\n" +
+                "Skol,Ambev,50,10,IPA\n"));
+
+        assertThat(result.getImported(), is(equalTo(1L)));
+        assertThat(result.getRejected(), is(equalTo(2L)));
+        assertThat(rows(result.getErrors()), contains(2L, 4L));
+        assertThat(result.getErrors().get(0).getMessage(), containsString("already registered"));
+    }
+
+    @Test
+    void whenRowsAreInvalidThenTheyAreReportedAndTheOthersImported() throws Exception {
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.emptyList());
+
+        BeerImportResultDTO result = beerImportService.importCsv(csv(
+                "Brahma,Ambev,50,101,LAGER\n" +
+                "Skol,Ambev,50,10,UNKNOWN\n" +
+                "Bohemia,Ambev,50,10,ALE\n"));
+
+        assertThat(result.getImported(), is(equalTo(1L)));
+        assertThat(rows(result.getErrors()), contains(2L, 3L));
+        assertThat(result.getErrors().get(0).getMessage(), containsString("quantity"));
+    }
+
+    @Test
+    void whenCsvFieldIsQuotedThenCommasInsideItAreKept() throws Exception {
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.emptyList());
+        ArgumentCaptor<List<Beer>> insertedBeers = ArgumentCaptor.forClass(List.class);
+        doNothing().when(beerRepository).insertAll(insertedBeers.capture());
+
+        BeerImportResultDTO result = beerImportService.importCsv(csv(
+                "\"Brahma, Extra\",\"Ambev \"\"BR\"\"\",50,10,LAGER\n"));
+
+        assertThat(result.getImported(), is(equalTo(1L)));
+        assertThat(insertedBeers.getValue().get(0).getName(), is(equalTo("Brahma, Extra")));
+        assertThat(insertedBeers.getValue().get(0).getBrand(), is(equalTo("Ambev \"BR\"")));
+    }
+
+    @Test
+    void whenCsvFieldHasALineBreakThenTheRecordSpansLinesAndRowsKeepTheirLineNumbers() throws Exception {
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.emptyList());
+        ArgumentCaptor<List<Beer>> insertedBeers = ArgumentCaptor.forClass(List.class);
+        doNothing().when(beerRepository).insertAll(insertedBeers.capture());
+
+        BeerImportResultDTO result = beerImportService.importCsv(csv(
+                "\"Brahma\nDuplo Malte\",Ambev,50,10,LAGER\n" +
+                "Skol,Ambev,50,10,UNKNOWN\n"));
+
+        assertThat(result.getImported(), is(equalTo(1L)));
+        assertThat(insertedBeers.getValue().get(0).getName(), is(equalTo("Brahma\nDuplo Malte")));
+        // o registro de duas linhas começa na 2; o seguinte, na 4
+        assertThat(rows(result.getErrors()), contains(4L));
+    }
+
+    @Test
+    void whenCsvStartsWithAUtf8BomThenTheFirstColumnIsStillRecognized() throws Exception {
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.emptyList());
+
+        BeerImportResultDTO result = beerImportService.importCsv(new ByteArrayInputStream(
+                ("\uFEFF" + CSV_HEADER + "Brahma,Ambev,50,10,LAGER\n").getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getImported(), is(equalTo(1L)));
+        assertThat(result.getRejected(), is(equalTo(0L)));
+    }
+
+    @Test
+    void whenRejectedRowsExceedMaxErrorsThenErrorsAreTruncated() throws Exception {
+        BeerImportResultDTO result = beerImportService.importNdjson(ndjson(
+                "not json\n" +
+                "{\"name\":\"\"}\n" +
+                "{\"name\":\"Brahma\"}\n"));
+
+        assertThat(result.getRejected(), is(equalTo(3L)));
+        assertThat(result.getErrors(), hasSize(2));
+        assertThat(result.getErrorsTruncated(), is(true));
+    }
+
+    @Test
+    void whenBatchHitsAConcurrentDuplicateThenChunkIsRetriedRowByRow() throws Exception {
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.emptyList());
+        doThrow(new DuplicateKeyException("batch"))
+                .doNothing()
+                .doThrow(new DuplicateKeyException("Skol"))
+                .when(beerRepository).insertAll(any());
+
+        BeerImportResultDTO result = beerImportService.importNdjson(ndjson(
+                "{\"name\":\"Brahma\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":10,\"type\":\"LAGER\"}\n" +
+                "{\"name\":\"Skol\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":10,\"type\":\"IPA\"}\n"));
+
+        assertThat(result.getImported(), is(equalTo(1L)));
+        assertThat(rows(result.getErrors()), contains(2L));
+    }
+
+    @Test
+    void whenRowHasAnIdThenItIsIgnored() throws Exception {
+        when(beerRepository.findNamesIn(anyCollection())).thenReturn(Collections.emptyList());
+        ArgumentCaptor<List<Beer>> insertedBeers = ArgumentCaptor.forClass(List.class);
+        doNothing().when(beerRepository).insertAll(insertedBeers.capture());
+
+        beerImportService.importNdjson(ndjson(
+                "{\"id\":42,\"name\":\"Brahma\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":10,\"type\":\"LAGER\"}\n"));
+
+        assertThat(insertedBeers.getValue().get(0).getId(), is((Long) null));
+        verify(beerCache).evictName("Brahma");
+    }
+
+    private static InputStream csv(String rows) {
+        return new ByteArrayInputStream((CSV_HEADER + rows).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream ndjson(String rows) {
+        return new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Long> rows(List<BeerImportErrorDTO> errors) {
+        return errors.stream().map(BeerImportErrorDTO::getRow).collect(Collectors.toList());
+    }
+}
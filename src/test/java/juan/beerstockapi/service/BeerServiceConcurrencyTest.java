@@ -0,0 +1,209 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.enums.StockMovementMode;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.StockMovementRejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// testes contra o H2 embarcado: varias threads batendo na mesma cerveja ao mesmo tempo
+@SpringBootTest
+public class BeerServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 50;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Test
+    void whenConcurrentIncrementsAreCalledThenNoIncrementIsLost() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("ConcurrentIncrement")
+                .max(500)
+                .quantity(0)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        AtomicInteger exceeded = new AtomicInteger();
+        runConcurrently(() -> {
+            try {
+                beerService.increment(id, 1);
+            } catch (BeerStockExceededException e) {
+                exceeded.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertThat(exceeded.get(), is(equalTo(0)));
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(THREADS * OPERATIONS_PER_THREAD)));
+    }
+
+    @Test
+    void whenConcurrentIncrementsExceedMaxThenStockStopsAtMax() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("ConcurrentIncrementMax")
+                .max(100)
+                .quantity(0)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        AtomicInteger exceeded = new AtomicInteger();
+        runConcurrently(() -> {
+            try {
+                beerService.increment(id, 1);
+            } catch (BeerStockExceededException e) {
+                exceeded.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertThat(exceeded.get(), is(equalTo(THREADS * OPERATIONS_PER_THREAD - 100)));
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(100)));
+    }
+
+    @Test
+    void whenConcurrentDecrementsAreCalledThenStockNeverGoesBelowZero() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("ConcurrentDecrement")
+                .max(500)
+                .quantity(100)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        AtomicInteger empty = new AtomicInteger();
+        runConcurrently(() -> {
+            try {
+                beerService.decrement(id, 1);
+            } catch (BeerStockEmptyException e) {
+                empty.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertThat(empty.get(), is(equalTo(THREADS * OPERATIONS_PER_THREAD - 100)));
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenBeerIsReadWhileIncrementedThenCacheEndsWithTheLatestQuantity() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("ConcurrentCachedRead")
+                .max(500)
+                .quantity(0)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        AtomicInteger operations = new AtomicInteger();
+        runConcurrently(() -> {
+            if (operations.incrementAndGet() % 2 == 0) {
+                beerService.increment(id, 1);
+            } else {
+                beerService.findByName(beerDTO.getName());
+            }
+            return null;
+        });
+
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(THREADS * OPERATIONS_PER_THREAD / 2)));
+    }
+
+    @Test
+    void whenConcurrentStockMovementBatchesAreAppliedThenNoMovementIsLost() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("ConcurrentBatch")
+                .max(500)
+                .quantity(0)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.BEST_EFFORT)
+                .movements(asList(
+                        StockMovementDTO.builder().id(id).delta(2).build(),
+                        StockMovementDTO.builder().id(id).delta(-1).build()))
+                .build();
+
+        runConcurrently(() -> {
+            beerService.applyStockMovements(request);
+            return null;
+        });
+
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(THREADS * OPERATIONS_PER_THREAD)));
+    }
+
+    @Test
+    void whenAllOrNothingBatchIsRejectedThenNoMovementIsApplied() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("RejectedBatch")
+                .max(50)
+                .quantity(10)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.ALL_OR_NOTHING)
+                .movements(asList(
+                        StockMovementDTO.builder().id(id).delta(5).build(),
+                        StockMovementDTO.builder().id(id).delta(-20).build()))
+                .build();
+
+        assertThrows(StockMovementRejectedException.class, () -> beerService.applyStockMovements(request));
+
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(10)));
+    }
+
+    private void runConcurrently(Callable<Void> operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                        operation.call();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -2,28 +2,52 @@ package juan.beerstockapi.service;
 
 import juan.beerstockapi.builder.BeerDTOBuilder;
 import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.BeerFilterDTO;
+import juan.beerstockapi.dto.BeerStatsDTO;
+import juan.beerstockapi.dto.BeerStockDTO;
+import juan.beerstockapi.dto.BeerTotalDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.dto.StockMovementResultDTO;
+import juan.beerstockapi.dto.WarehouseStockDTO;
 import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.entity.WarehouseStock;
+import juan.beerstockapi.event.StockChangedEvent;
+import juan.beerstockapi.enums.StockMovementMode;
+import juan.beerstockapi.enums.StockMovementStatus;
 import juan.beerstockapi.exception.BeerAlreadyRegisteredException;
 import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
 import juan.beerstockapi.exception.BeerStockEmptyException;
 import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.StockMovementRejectedException;
+import juan.beerstockapi.exception.WarehouseStockNotFoundException;
 import juan.beerstockapi.mapper.BeerMapper;
 import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.repository.BeerVersion;
+import juan.beerstockapi.repository.WarehouseStockRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +58,21 @@ public class BeerServiceTest {
     @Mock
     private BeerRepository beerRepository;
 
+    @Mock
+    private BeerCache beerCache;
+
+    @Mock
+    private StockUpdater stockUpdater;
+
+    @Mock
+    private StockHistoryService stockHistory;
+
+    @Mock
+    private WarehouseStockRepository warehouseStockRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private BeerMapper beerMapper = BeerMapper.INSTANCE;
 
     @InjectMocks
@@ -93,6 +132,48 @@ public class BeerServiceTest {
         assertThat(foundBeerDTO, is(equalTo(expectedFoundBeerDTO)));
     }
 
+    @Test
+    void whenCachedBeerNameIsGivenThenReturnTheCachedBeer() throws BeerNotFoundException {
+        BeerDTO expectedFoundBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        when(beerCache.get(expectedFoundBeerDTO.getName())).thenReturn(expectedFoundBeerDTO);
+
+        BeerDTO foundBeerDTO = beerService.findByName(expectedFoundBeerDTO.getName());
+
+        assertThat(foundBeerDTO, is(equalTo(expectedFoundBeerDTO)));
+        verify(beerRepository, never()).findByName(any());
+    }
+
+    @Test
+    void whenVersionTagIsAskedForACachedBeerThenTheDatabaseIsNotQueried() throws BeerNotFoundException {
+        BeerDTO cachedBeerDTO = BeerDTOBuilder.builder().version(3L).build().toBeerDTO();
+
+        when(beerCache.get(cachedBeerDTO.getName())).thenReturn(cachedBeerDTO);
+
+        assertThat(beerService.versionTag(cachedBeerDTO.getName()), is(equalTo(cachedBeerDTO.getId() + "-3")));
+        verify(beerRepository, never()).findVersionByName(any());
+    }
+
+    @Test
+    void whenVersionTagIsAskedForANotCachedBeerThenOnlyItsVersionIsRead() throws BeerNotFoundException {
+        BeerVersion beerVersion = mock(BeerVersion.class);
+
+        when(beerVersion.getId()).thenReturn(1L);
+        when(beerVersion.getVersion()).thenReturn(5L);
+        when(beerRepository.findVersionByName("NotCached")).thenReturn(Optional.of(beerVersion));
+
+        assertThat(beerService.versionTag("NotCached"), is(equalTo("1-5")));
+        verify(beerRepository, never()).findByName(any());
+        verify(beerCache, never()).put(any(), anyLong());
+    }
+
+    @Test
+    void whenVersionTagIsAskedForANotRegisteredBeerThenThrowAnException() {
+        when(beerRepository.findVersionByName("Unknown")).thenReturn(Optional.empty());
+
+        assertThrows(BeerNotFoundException.class, () -> beerService.versionTag("Unknown"));
+    }
+
     @Test
     void whenNotRegisteredBeerNameIsGivenThenThrowAnException() {
         // given
@@ -135,6 +216,91 @@ public class BeerServiceTest {
         assertThat(foundListBeersDTO, is(empty()));
     }
 
+    @Test
+    void whenListPageIsCalledThenReturnBeersAfterTheGivenId() {
+        BeerDTO expectedFoundBeerDTO = BeerDTOBuilder.builder().id(2L).build().toBeerDTO();
+        Beer expectedFoundBeer = beerMapper.toModel(expectedFoundBeerDTO);
+
+        when(beerRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 10))).thenReturn(singletonList(expectedFoundBeer));
+
+        List<BeerDTO> foundListBeersDTO = beerService.listPage(1L, 10);
+
+        assertThat(foundListBeersDTO, contains(expectedFoundBeerDTO));
+    }
+
+    @Test
+    void whenListPageIsCalledWithTooLargeSizeThenPageSizeIsLimited() {
+        when(beerRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, BeerService.MAX_PAGE_SIZE))).thenReturn(EMPTY_LIST);
+
+        List<BeerDTO> foundListBeersDTO = beerService.listPage(null, BeerService.MAX_PAGE_SIZE + 1);
+
+        assertThat(foundListBeersDTO, is(empty()));
+    }
+
+    @Test
+    void whenFilterIsCalledWithTooLargeSizeThenPageSizeIsLimited() {
+        BeerDTO expectedFoundBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedFoundBeer = beerMapper.toModel(expectedFoundBeerDTO);
+
+        when(beerRepository.findFirstById(any(), eq(BeerService.MAX_PAGE_SIZE))).thenReturn(singletonList(expectedFoundBeer));
+
+        List<BeerDTO> foundListBeersDTO = beerService.filter(new BeerFilterDTO(), null, BeerService.MAX_PAGE_SIZE + 1);
+
+        assertThat(foundListBeersDTO, contains(expectedFoundBeerDTO));
+    }
+
+    @Test
+    void whenStatsIsCalledThenTotalsAreGroupedByTypeAndBrand() {
+        BeerTotalDTO typeTotal = new BeerTotalDTO("LAGER", 1L, 10L, 50L);
+        BeerTotalDTO brandTotal = new BeerTotalDTO("Ambev", 1L, 10L, 50L);
+
+        when(beerRepository.totalsBy(eq("type"), any())).thenReturn(singletonList(typeTotal));
+        when(beerRepository.totalsBy(eq("brand"), any())).thenReturn(singletonList(brandTotal));
+
+        BeerStatsDTO stats = beerService.stats(new BeerFilterDTO());
+
+        assertThat(stats.getByType(), contains(typeTotal));
+        assertThat(stats.getByBrand(), contains(brandTotal));
+    }
+
+    @Test
+    void whenSearchByPrefixIsCalledThenPrefixIsNormalized() {
+        BeerDTO expectedFoundBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedFoundBeer = beerMapper.toModel(expectedFoundBeerDTO);
+
+        when(beerRepository.findBySearchNameStartingWithOrderBySearchNameAsc("bra", PageRequest.of(0, BeerService.DEFAULT_SEARCH_LIMIT)))
+                .thenReturn(singletonList(expectedFoundBeer));
+
+        List<BeerDTO> foundListBeersDTO = beerService.searchByPrefix("BRÁ", null);
+
+        assertThat(foundListBeersDTO, contains(expectedFoundBeerDTO));
+    }
+
+    @Test
+    void whenSearchByPrefixIsCalledWithBlankPrefixThenNothingIsQueried() {
+        List<BeerDTO> foundListBeersDTO = beerService.searchByPrefix("  ", null);
+
+        assertThat(foundListBeersDTO, is(empty()));
+        verify(beerRepository, never()).findBySearchNameStartingWithOrderBySearchNameAsc(any(), any());
+    }
+
+    @Test
+    void whenStreamAllIsCalledThenEveryBeerIsMappedToTheConsumer() {
+        BeerDTO expectedFoundBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedFoundBeer = beerMapper.toModel(expectedFoundBeerDTO);
+
+        doAnswer(invocation -> {
+            Consumer<Beer> consumer = invocation.getArgument(0);
+            consumer.accept(expectedFoundBeer);
+            return null;
+        }).when(beerRepository).streamAll(any());
+
+        List<BeerDTO> streamedBeersDTO = new ArrayList<>();
+        beerService.streamAll(streamedBeersDTO::add);
+
+        assertThat(streamedBeersDTO, contains(expectedFoundBeerDTO));
+    }
+
     // EXCLUSION
         // excluir -> ok
         // excluir -> not found
@@ -153,6 +319,8 @@ public class BeerServiceTest {
 
         verify(beerRepository, times(1)).findById(expectedDeletedBeerDTO.getId());
         verify(beerRepository, times(1)).deleteById(expectedDeletedBeerDTO.getId());
+        verify(warehouseStockRepository, times(1)).deleteByBeerId(expectedDeletedBeerDTO.getId());
+        verify(stockUpdater, times(1)).forget(expectedDeletedBeerDTO.getId());
     }
 
     @Test
@@ -170,42 +338,46 @@ public class BeerServiceTest {
         //increment com id valido-> exceeded
 
     @Test
-    void whenIncrementIsCalledThenIncrementBeerStock() throws BeerNotFoundException, BeerStockExceededException {
+    void whenIncrementIsCalledThenIncrementBeerStock() throws BeerNotFoundException, BeerStockExceededException, BeerStockConflictException {
         //given
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
-        //when
-        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-        when(beerRepository.save(expectedBeer)).thenReturn(expectedBeer);
-
         int quantityToIncrement = 10;
         int expectedQuantityAfterIncrement = expectedBeerDTO.getQuantity() + quantityToIncrement;
+        expectedBeer.setQuantity(expectedQuantityAfterIncrement);
+
+        //when
+        when(stockUpdater.increment(expectedBeerDTO.getId(), quantityToIncrement)).thenReturn(expectedBeer);
 
         // then
         BeerDTO incrementedBeerDTO = beerService.increment(expectedBeerDTO.getId(), quantityToIncrement);
 
         assertThat(expectedQuantityAfterIncrement, equalTo(incrementedBeerDTO.getQuantity()));
         assertThat(expectedQuantityAfterIncrement, lessThan(expectedBeerDTO.getMax()));
+        verify(beerCache).evict(expectedBeerDTO.getId());
+        verify(eventPublisher).publishEvent(new StockChangedEvent(expectedBeerDTO.getId(), expectedBeerDTO.getName(),
+                BeerService.DEFAULT_WAREHOUSE, expectedBeerDTO.getQuantity(), expectedQuantityAfterIncrement, expectedBeerDTO.getMax()));
     }
 
     @Test
-    void whenIncrementIsGreatherThanMaxThenThrowException() {
+    void whenIncrementIsGreatherThanMaxThenThrowException() throws Exception {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
-        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
-
-        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
         int quantityToIncrement = 80;
+
+        when(stockUpdater.increment(expectedBeerDTO.getId(), quantityToIncrement)).thenThrow(BeerStockExceededException.class);
+
         assertThrows(BeerStockExceededException.class, () -> beerService.increment(expectedBeerDTO.getId(), quantityToIncrement));
+        verify(beerCache, never()).evict(expectedBeerDTO.getId());
     }
 
 
     @Test
-    void whenIncrementIsCalledWithInvalidIdThenThrowException() {
+    void whenIncrementIsCalledWithInvalidIdThenThrowException() throws Exception {
         int quantityToIncrement = 10;
 
-        when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+        when(stockUpdater.increment(INVALID_BEER_ID, quantityToIncrement)).thenThrow(BeerNotFoundException.class);
 
         assertThrows(BeerNotFoundException.class, () -> beerService.increment(INVALID_BEER_ID, quantityToIncrement));
     }
@@ -216,39 +388,187 @@ public class BeerServiceTest {
 
 
     @Test
-    void whenDecrementIsCalledThenDecrementBeerStock() throws BeerNotFoundException, BeerStockEmptyException {
+    void whenDecrementIsCalledThenDecrementBeerStock() throws BeerNotFoundException, BeerStockEmptyException, BeerStockConflictException {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
-        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-        when(beerRepository.save(expectedBeer)).thenReturn(expectedBeer);
-
         int quantityToDecrement = 5;
         int expectedQuantityAfterDecrement = expectedBeerDTO.getQuantity() - quantityToDecrement;
+        expectedBeer.setQuantity(expectedQuantityAfterDecrement);
+
+        when(stockUpdater.decrement(expectedBeerDTO.getId(), quantityToDecrement)).thenReturn(expectedBeer);
         BeerDTO incrementedBeerDTO = beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement);
 
         assertThat(expectedQuantityAfterDecrement, equalTo(incrementedBeerDTO.getQuantity()));
         assertThat(expectedQuantityAfterDecrement, greaterThan(0));
+        verify(beerCache).evict(expectedBeerDTO.getId());
     }
 
 
     @Test
-    void whenDecrementIsLowerThanZeroThenThrowException() {
+    void whenDecrementIsLowerThanZeroThenThrowException() throws Exception {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
-        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
-
-        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
         int quantityToDecrement = 80;
+
+        when(stockUpdater.decrement(expectedBeerDTO.getId(), quantityToDecrement)).thenThrow(BeerStockEmptyException.class);
+
         assertThrows(BeerStockEmptyException.class, () -> beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement));
     }
 
     @Test
-    void whenDecrementIsCalledWithInvalidIdThenThrowException() {
+    void whenDecrementIsCalledWithInvalidIdThenThrowException() throws Exception {
         int quantityToDecrement = 10;
 
-        when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+        when(stockUpdater.decrement(INVALID_BEER_ID, quantityToDecrement)).thenThrow(BeerNotFoundException.class);
 
         assertThrows(BeerNotFoundException.class, () -> beerService.decrement(INVALID_BEER_ID, quantityToDecrement));
     }
+
+    // WAREHOUSES
+        // increment em outro depósito -> update na linha do depósito
+        // increment no principal -> StockUpdater
+        // depósito não cadastrado -> exception
+        // estoque por depósito -> total somado
+
+    @Test
+    void whenIncrementAtIsCalledForAnotherWarehouseThenOnlyItsStockIsUpdated() throws Exception {
+        WarehouseStock warehouseStock = new WarehouseStock(7L, 1L, "north", 50, 15, 1L);
+
+        when(warehouseStockRepository.incrementQuantity(1L, "north", 5)).thenReturn(1);
+        when(warehouseStockRepository.findByBeerIdAndWarehouse(1L, "north")).thenReturn(Optional.of(warehouseStock));
+
+        WarehouseStockDTO warehouseStockDTO = beerService.incrementAt(1L, "north", 5);
+
+        assertThat(warehouseStockDTO, is(equalTo(new WarehouseStockDTO("north", 50, 15))));
+        verifyNoInteractions(stockUpdater, beerCache);
+    }
+
+    @Test
+    void whenIncrementAtIsCalledForTheMainWarehouseThenStockUpdaterIsUsed() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
+
+        when(stockUpdater.increment(expectedBeerDTO.getId(), 5)).thenReturn(expectedBeer);
+
+        WarehouseStockDTO warehouseStockDTO = beerService.incrementAt(expectedBeerDTO.getId(), BeerService.DEFAULT_WAREHOUSE, 5);
+
+        assertThat(warehouseStockDTO.getWarehouse(), is(equalTo(BeerService.DEFAULT_WAREHOUSE)));
+        verifyNoInteractions(warehouseStockRepository);
+    }
+
+    @Test
+    void whenDecrementAtIsCalledForAnUnknownWarehouseThenThrowException() {
+        when(warehouseStockRepository.decrementQuantity(1L, "south", 5)).thenReturn(0);
+        when(warehouseStockRepository.findByBeerIdAndWarehouse(1L, "south")).thenReturn(Optional.empty());
+
+        assertThrows(WarehouseStockNotFoundException.class, () -> beerService.decrementAt(1L, "south", 5));
+    }
+
+    @Test
+    void whenStockByWarehouseIsCalledThenTotalIncludesEveryWarehouse() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer beer = beerMapper.toModel(beerDTO);
+
+        when(beerRepository.findById(beerDTO.getId())).thenReturn(Optional.of(beer));
+        when(warehouseStockRepository.findByBeerIdOrderByWarehouseAsc(beerDTO.getId())).thenReturn(asList(
+                new WarehouseStock(7L, 1L, "north", 50, 15, 1L),
+                new WarehouseStock(8L, 1L, "south", 50, 5, 1L)));
+
+        BeerStockDTO beerStockDTO = beerService.stockByWarehouse(beerDTO.getId());
+
+        assertThat(beerStockDTO.getTotal(), is(equalTo(beerDTO.getQuantity() + 20)));
+        assertThat(beerStockDTO.getWarehouses().get(0).getWarehouse(), is(equalTo(BeerService.DEFAULT_WAREHOUSE)));
+        assertThat(beerStockDTO.getWarehouses().size(), is(equalTo(3)));
+    }
+
+    // STOCK MOVEMENTS
+        // lote todo aplicado -> ok
+        // best effort com recusas -> aplica o resto
+        // all or nothing com recusa -> exception
+
+    @Test
+    void whenStockMovementsAreAllValidThenAllAreApplied() throws StockMovementRejectedException {
+        List<StockMovementDTO> movements = asList(
+                StockMovementDTO.builder().id(1L).delta(10).build(),
+                StockMovementDTO.builder().id(2L).delta(-5).build());
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.ALL_OR_NOTHING)
+                .movements(movements)
+                .build();
+        Beer firstBeer = beerWithQuantity(1L, 20);
+        Beer secondBeer = beerWithQuantity(2L, 5);
+
+        when(stockUpdater.applyAll(movements, true)).thenReturn(asList(firstBeer, secondBeer));
+
+        List<StockMovementResultDTO> results = beerService.applyStockMovements(request);
+
+        assertThat(results, hasSize(2));
+        assertThat(results.get(0).getStatus(), is(equalTo(StockMovementStatus.APPLIED)));
+        assertThat(results.get(1).getStatus(), is(equalTo(StockMovementStatus.APPLIED)));
+        verify(beerRepository, never()).findAllById(any());
+        // um evento por movimento, com a quantidade antes e depois dele
+        verify(eventPublisher).publishEvent(new StockChangedEvent(1L, firstBeer.getName(), BeerService.DEFAULT_WAREHOUSE,
+                10, 20, firstBeer.getMax()));
+        verify(eventPublisher).publishEvent(new StockChangedEvent(2L, secondBeer.getName(), BeerService.DEFAULT_WAREHOUSE,
+                10, 5, secondBeer.getMax()));
+    }
+
+    @Test
+    void whenBestEffortStockMovementsHaveRejectionsThenOthersAreApplied() throws StockMovementRejectedException {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
+        List<StockMovementDTO> movements = asList(
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(5).build(),
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(80).build(),
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(-80).build(),
+                StockMovementDTO.builder().id(INVALID_BEER_ID + 1).delta(5).build());
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.BEST_EFFORT)
+                .movements(movements)
+                .build();
+
+        when(stockUpdater.applyAll(movements, false)).thenReturn(asList(beerWithQuantity(expectedBeerDTO.getId(), expectedBeerDTO.getQuantity() + 5), null, null, null));
+        when(beerRepository.findAllById(any())).thenReturn(singletonList(expectedBeer));
+
+        List<StockMovementResultDTO> results = beerService.applyStockMovements(request);
+
+        verify(eventPublisher).publishEvent(new StockChangedEvent(expectedBeerDTO.getId(), expectedBeerDTO.getName(),
+                BeerService.DEFAULT_WAREHOUSE, expectedBeerDTO.getQuantity(), expectedBeerDTO.getQuantity() + 5, expectedBeerDTO.getMax()));
+
+        assertThat(results.get(0).getStatus(), is(equalTo(StockMovementStatus.APPLIED)));
+        assertThat(results.get(1).getStatus(), is(equalTo(StockMovementStatus.STOCK_EXCEEDED)));
+        assertThat(results.get(2).getStatus(), is(equalTo(StockMovementStatus.STOCK_EMPTY)));
+        assertThat(results.get(3).getStatus(), is(equalTo(StockMovementStatus.NOT_FOUND)));
+    }
+
+    @Test
+    void whenAllOrNothingStockMovementsHaveRejectionsThenThrowException() {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
+        List<StockMovementDTO> movements = asList(
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(5).build(),
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(80).build());
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.ALL_OR_NOTHING)
+                .movements(movements)
+                .build();
+
+        when(stockUpdater.applyAll(movements, true)).thenReturn(asList(beerWithQuantity(expectedBeerDTO.getId(), expectedBeerDTO.getQuantity() + 5), null));
+        when(beerRepository.findAllById(any())).thenReturn(singletonList(expectedBeer));
+
+        StockMovementRejectedException exception = assertThrows(StockMovementRejectedException.class,
+                () -> beerService.applyStockMovements(request));
+
+        verify(eventPublisher, never()).publishEvent(any(StockChangedEvent.class));
+        assertThat(exception.getResults().get(0).getStatus(), is(equalTo(StockMovementStatus.ROLLED_BACK)));
+        assertThat(exception.getResults().get(1).getStatus(), is(equalTo(StockMovementStatus.STOCK_EXCEEDED)));
+    }
+
+    private Beer beerWithQuantity(Long id, int quantity) {
+        Beer beer = beerMapper.toModel(BeerDTOBuilder.builder().build().toBeerDTO());
+        beer.setId(id);
+        beer.setQuantity(quantity);
+        return beer;
+    }
 }
@@ -0,0 +1,125 @@
+package juan.beerstockapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(MockitoExtension.class)
+public class CatalogResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<BeerDTO> beers = asList(
+            BeerDTOBuilder.builder().build().toBeerDTO(),
+            BeerDTOBuilder.builder().id(2L).name("Skol").version(4L).build().toBeerDTO());
+
+    @Mock
+    private BeerService beerService;
+
+    private CatalogResponseCache catalogResponseCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        catalogResponseCache = new CatalogResponseCache(beerService, objectMapper, true, true, 9, DataSize.ofBytes(0));
+        lenient().doAnswer(invocation -> {
+            beers.forEach(invocation.<Consumer<BeerDTO>>getArgument(0));
+            return null;
+        }).when(beerService).streamAll(any());
+    }
+
+    @Test
+    void whenCatalogIsUnchangedThenTheSameSnapshotIsReturned() throws Exception {
+        when(beerService.catalogVersion()).thenReturn("epoch-1");
+
+        CatalogResponseCache.Snapshot first = catalogResponseCache.current();
+        CatalogResponseCache.Snapshot second = catalogResponseCache.current();
+
+        assertThat(second, is(sameInstance(first)));
+        verify(beerService, times(1)).streamAll(any());
+    }
+
+    @Test
+    void whenCatalogChangesThenTheSnapshotIsRebuilt() throws Exception {
+        when(beerService.catalogVersion()).thenReturn("epoch-1", "epoch-2", "epoch-2");
+
+        CatalogResponseCache.Snapshot first = catalogResponseCache.current();
+        CatalogResponseCache.Snapshot second = catalogResponseCache.current();
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getVersion(), is(equalTo("epoch-2")));
+        verify(beerService, times(2)).streamAll(any());
+    }
+
+    @Test
+    void whenSnapshotIsBuiltThenItMatchesTheListSerialization() throws Exception {
+        when(beerService.catalogVersion()).thenReturn("epoch-1");
+
+        CatalogResponseCache.Snapshot snapshot = catalogResponseCache.current();
+
+        byte[] expectedJson = objectMapper.writeValueAsBytes(beers);
+        assertThat(snapshot.getJson(), is(equalTo(expectedJson)));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(snapshot.getGzip()))) {
+            assertThat(gzip.readAllBytes(), is(equalTo(expectedJson)));
+        }
+    }
+
+    @Test
+    void whenAcceptEncodingHasGzipThenGzipIsAccepted() {
+        assertThat(catalogResponseCache.acceptsGzip("gzip, deflate, br"), is(true));
+        assertThat(catalogResponseCache.acceptsGzip("identity"), is(false));
+        assertThat(catalogResponseCache.acceptsGzip(null), is(false));
+    }
+
+    @Test
+    void whenAcceptEncodingHasQualityValuesThenTheyAreRespected() {
+        assertThat(catalogResponseCache.acceptsGzip("br;q=1.0, gzip;q=0.8"), is(true));
+        assertThat(catalogResponseCache.acceptsGzip("gzip;q=0, deflate"), is(false));
+        assertThat(catalogResponseCache.acceptsGzip("*"), is(true));
+        assertThat(catalogResponseCache.acceptsGzip("*;q=0.5, gzip;q=0"), is(false));
+        assertThat(catalogResponseCache.acceptsGzip("identity, *;q=0"), is(false));
+        assertThat(catalogResponseCache.acceptsGzip("x-gzip"), is(true));
+    }
+
+    @Test
+    void whenCatalogIsBelowTheCompressionThresholdThenNoGzipIsKept() throws Exception {
+        catalogResponseCache = new CatalogResponseCache(beerService, objectMapper, true, true, 6, DataSize.ofKilobytes(2));
+        when(beerService.catalogVersion()).thenReturn("epoch-1");
+
+        CatalogResponseCache.Snapshot snapshot = catalogResponseCache.current();
+
+        assertThat(snapshot.getJson(), is(equalTo(objectMapper.writeValueAsBytes(beers))));
+        assertThat(snapshot.getGzip(), is(nullValue()));
+    }
+
+    @Test
+    void whenGzipLevelIsOutOfRangeThenItIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CatalogResponseCache(beerService, objectMapper, true, true, 0, DataSize.ofBytes(0)));
+    }
+}
@@ -0,0 +1,99 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.exception.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IdempotencyStoreTest {
+
+    private final IdempotencyStore idempotencyStore = new IdempotencyStore(100, Duration.ofMinutes(1));
+
+    @Test
+    void whenKeyIsRepeatedThenTheStoredResultIsReplayed() throws Exception {
+        try (IdempotencyStore.Claim<String> claim = idempotencyStore.claim("key", "decrement 5")) {
+            assertThat(claim.isReplay(), is(false));
+            claim.complete("applied");
+        }
+
+        try (IdempotencyStore.Claim<String> claim = idempotencyStore.claim("key", "decrement 5")) {
+            assertThat(claim.isReplay(), is(true));
+            assertThat(claim.getResult(), is(equalTo("applied")));
+        }
+    }
+
+    @Test
+    void whenKeyIsReusedForAnotherRequestThenAnExceptionIsThrown() throws Exception {
+        try (IdempotencyStore.Claim<String> claim = idempotencyStore.claim("key", "decrement 5")) {
+            claim.complete("applied");
+        }
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyStore.claim("key", "increment 5"));
+    }
+
+    @Test
+    void whenOperationFailsThenTheKeyIsReleased() throws Exception {
+        try (IdempotencyStore.Claim<String> ignored = idempotencyStore.claim("key", "decrement 5")) {
+            // operação lançou exceção antes do complete
+        }
+
+        try (IdempotencyStore.Claim<String> claim = idempotencyStore.claim("key", "decrement 5")) {
+            assertThat(claim.isReplay(), is(false));
+        }
+    }
+
+    @Test
+    void whenNoKeyIsGivenThenNothingIsReplayed() throws Exception {
+        try (IdempotencyStore.Claim<String> claim = idempotencyStore.claim(null, "decrement 5")) {
+            claim.complete("applied");
+        }
+
+        try (IdempotencyStore.Claim<String> claim = idempotencyStore.claim(null, "decrement 5")) {
+            assertThat(claim.isReplay(), is(false));
+        }
+        assertThat(idempotencyStore.size(), is(equalTo(0L)));
+    }
+
+    @Test
+    void whenTheSameKeyArrivesConcurrentlyThenTheOperationRunsOnce() throws Exception {
+        int threads = 8;
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try (IdempotencyStore.Claim<String> claim = idempotencyStore.claim("key", "decrement 5")) {
+                        if (claim.isReplay()) {
+                            return claim.getResult();
+                        }
+                        Thread.sleep(50);
+                        return claim.complete("applied " + executions.incrementAndGet());
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS), is(equalTo("applied 1")));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(executions.get(), is(equalTo(1)));
+    }
+}
@@ -0,0 +1,163 @@
+package juan.beerstockapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.ReservationRequestDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.enums.StockMovementMode;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.ReservationsUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// mesmo cenário do BeerServiceConcurrencyTest, no modo ledger: o banco só vê a soma no flush
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledger;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "beerstock.stock.mode=ledger",
+        "beerstock.stock.ledger.flush-interval=PT1H"
+})
+public class LedgerStockUpdaterConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 50;
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void ledgerProperties(DynamicPropertyRegistry registry) {
+        registry.add("beerstock.stock.ledger.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private LedgerStockUpdater ledgerStockUpdater;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void whenConcurrentIncrementsExceedMaxThenFlushedStockStopsAtMax() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("LedgerIncrementMax")
+                .max(100)
+                .quantity(0)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        AtomicInteger exceeded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                        try {
+                            beerService.increment(id, 1);
+                        } catch (BeerStockExceededException e) {
+                            exceeded.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(0)));
+
+        ledgerStockUpdater.flush();
+
+        assertThat(exceeded.get(), is(equalTo(THREADS * OPERATIONS_PER_THREAD - 100)));
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(100)));
+    }
+
+    @Test
+    void whenStockMovementsAreAppliedThenLaterMovementsSeeThem() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("LedgerBatch")
+                .max(50)
+                .quantity(10)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        beerService.applyStockMovements(StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.BEST_EFFORT)
+                .movements(List.of(StockMovementDTO.builder().id(id).delta(-8).build()))
+                .build());
+
+        assertThrows(BeerStockEmptyException.class, () -> beerService.decrement(id, 10));
+        ledgerStockUpdater.flush();
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(2)));
+    }
+
+    @Test
+    void whenBeerWithPendingDeltasIsDeletedThenTheFlushDoesNotRejectThem() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("LedgerDeleted")
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+        double rejectedBefore = meterRegistry.counter(LedgerStockUpdater.REJECTED_COUNTER).count();
+
+        beerService.increment(id, 5);
+        beerService.deleteById(id);
+        ledgerStockUpdater.flush();
+
+        assertThat(meterRegistry.counter(LedgerStockUpdater.REJECTED_COUNTER).count(), is(equalTo(rejectedBefore)));
+        assertThrows(BeerNotFoundException.class, () -> beerService.increment(id, 1));
+    }
+
+    @Test
+    void whenReservationIsRequestedInLedgerModeThenItIsRefused() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("LedgerReservation")
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        assertThrows(ReservationsUnavailableException.class,
+                () -> reservationService.reserve(id, ReservationRequestDTO.builder().quantity(1).build()));
+    }
+}
@@ -0,0 +1,247 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.entity.StockLedgerCheckpoint;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.mapper.BeerMapper;
+import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.repository.StockLedgerCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerStockUpdaterTest {
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    @Mock
+    private StockLedgerCheckpointRepository checkpointRepository;
+
+    @Mock
+    private BeerCache beerCache;
+
+    @Mock
+    private StockHistoryService stockHistory;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    @Test
+    void whenIncrementIsCalledThenOnlyTheCounterChangesUntilFlush() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        ledgerStockUpdater.increment(expectedBeerDTO.getId(), 5);
+        Beer incrementedBeer = ledgerStockUpdater.increment(expectedBeerDTO.getId(), 2);
+
+        assertThat(incrementedBeer.getQuantity(), is(equalTo(expectedBeerDTO.getQuantity() + 7)));
+        verify(beerRepository, never()).addToQuantities(any(), any());
+    }
+
+    @Test
+    void whenIncrementIsGreaterThanMaxThenThrowException() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        assertThrows(BeerStockExceededException.class, () -> ledgerStockUpdater.increment(expectedBeerDTO.getId(), 41));
+    }
+
+    @Test
+    void whenDecrementIsGreaterThanQuantityThenThrowException() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        assertThrows(BeerStockEmptyException.class, () -> ledgerStockUpdater.decrement(expectedBeerDTO.getId(), 11));
+    }
+
+    @Test
+    void whenDecrementWouldTakeReservedUnitsThenThrowException() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer reservedBeer = beerMapper.toModel(expectedBeerDTO);
+        reservedBeer.setReserved(8);
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(reservedBeer));
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        assertThrows(BeerStockEmptyException.class, () -> ledgerStockUpdater.decrement(expectedBeerDTO.getId(), 3));
+        assertThat(ledgerStockUpdater.decrement(expectedBeerDTO.getId(), 2).getQuantity(), is(equalTo(8)));
+    }
+
+    @Test
+    void whenFlushedDeltaIsRejectedThenItIsDiscardedFromTheCounterAndTheHistory() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        when(beerRepository.addToQuantities(Map.of(expectedBeerDTO.getId(), 5L), Map.of(expectedBeerDTO.getId(), 1L))).thenReturn(List.of(expectedBeerDTO.getId()));
+        when(beerRepository.existsById(expectedBeerDTO.getId())).thenReturn(true);
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        ledgerStockUpdater.increment(expectedBeerDTO.getId(), 5);
+        ledgerStockUpdater.flush();
+
+        verify(stockHistory, never()).recordAll(any());
+        assertThat(meterRegistry.counter(LedgerStockUpdater.REJECTED_COUNTER).count(), is(equalTo(1.0)));
+        assertThat(ledgerStockUpdater.increment(expectedBeerDTO.getId(), 1).getQuantity(), is(equalTo(expectedBeerDTO.getQuantity() + 1)));
+    }
+
+    @Test
+    void whenBeerWithPendingDeltasIsDeletedThenTheyAreNotFlushed() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId()))
+                .thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)), Optional.empty());
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        ledgerStockUpdater.increment(expectedBeerDTO.getId(), 5);
+        ledgerStockUpdater.forget(expectedBeerDTO.getId());
+        ledgerStockUpdater.flush();
+
+        verify(beerRepository, never()).addToQuantities(any(), any());
+        assertThat(meterRegistry.counter(LedgerStockUpdater.REJECTED_COUNTER).count(), is(equalTo(0.0)));
+        assertThrows(BeerNotFoundException.class, () -> ledgerStockUpdater.increment(expectedBeerDTO.getId(), 1));
+    }
+
+    @Test
+    void whenFlushedDeltaIsRejectedBecauseTheBeerWasDeletedThenItIsNotCountedAsAnError() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        when(beerRepository.addToQuantities(any(), any())).thenReturn(List.of(expectedBeerDTO.getId()));
+        when(beerRepository.existsById(expectedBeerDTO.getId())).thenReturn(false);
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        // o delete chegou com o delta já no flush, fora do alcance do forget
+        ledgerStockUpdater.increment(expectedBeerDTO.getId(), 5);
+        ledgerStockUpdater.flush();
+
+        assertThat(meterRegistry.counter(LedgerStockUpdater.REJECTED_COUNTER).count(), is(equalTo(0.0)));
+    }
+
+    @Test
+    void whenStockMovementsAreAppliedThenTheCounterTracksThem() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        when(beerRepository.findById(2L)).thenReturn(Optional.empty());
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        List<Beer> updatedBeers = ledgerStockUpdater.applyAll(asList(
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(-8).build(),
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(-5).build(),
+                StockMovementDTO.builder().id(2L).delta(1).build()), false);
+
+        assertThat(updatedBeers.get(0).getQuantity(), is(equalTo(2)));
+        assertThat(updatedBeers.get(0).getVersion(), is(equalTo(1L)));
+        assertThat(updatedBeers.get(1), is(nullValue()));
+        assertThat(updatedBeers.get(2), is(nullValue()));
+        assertThrows(BeerStockEmptyException.class, () -> ledgerStockUpdater.decrement(expectedBeerDTO.getId(), 3));
+        Beer decrementedBeer = ledgerStockUpdater.decrement(expectedBeerDTO.getId(), 2);
+        assertThat(decrementedBeer.getQuantity(), is(equalTo(0)));
+        assertThat(decrementedBeer.getVersion(), is(equalTo(2L)));
+
+        ledgerStockUpdater.flush();
+
+        verify(beerRepository).addToQuantities(Map.of(expectedBeerDTO.getId(), -10L), Map.of(expectedBeerDTO.getId(), 2L));
+    }
+
+    @Test
+    void whenAllOrNothingStockMovementsHaveRejectionsThenNoneIsApplied() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        List<Beer> updatedBeers = ledgerStockUpdater.applyAll(asList(
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(5).build(),
+                StockMovementDTO.builder().id(expectedBeerDTO.getId()).delta(40).build()), true);
+
+        assertThat(updatedBeers.get(0).getQuantity(), is(equalTo(15)));
+        assertThat(updatedBeers.get(1), is(nullValue()));
+        assertThat(ledgerStockUpdater.increment(expectedBeerDTO.getId(), 40).getQuantity(), is(equalTo(50)));
+        ledgerStockUpdater.flush();
+        verify(beerRepository).addToQuantities(Map.of(expectedBeerDTO.getId(), 40L), Map.of(expectedBeerDTO.getId(), 1L));
+    }
+
+    @Test
+    void whenLedgerModeIsActiveThenReservationsAreNotSupported() throws Exception {
+        assertThat(startUpdater().supportsReservations(), is(false));
+    }
+
+    @Test
+    void whenBeerIsNotFoundThenThrowException() throws Exception {
+        when(beerRepository.findById(1L)).thenReturn(Optional.empty());
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        assertThrows(BeerNotFoundException.class, () -> ledgerStockUpdater.increment(1L, 1));
+    }
+
+    @Test
+    void whenFlushIsCalledThenDeltasAreCoalescedAndCheckpointed() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        LedgerStockUpdater ledgerStockUpdater = startUpdater();
+
+        ledgerStockUpdater.increment(expectedBeerDTO.getId(), 5);
+        ledgerStockUpdater.decrement(expectedBeerDTO.getId(), 2);
+        ledgerStockUpdater.flush();
+
+        verify(beerRepository).addToQuantities(Map.of(expectedBeerDTO.getId(), 3L), Map.of(expectedBeerDTO.getId(), 2L));
+        verify(checkpointRepository).save(new StockLedgerCheckpoint(1L, 1L));
+        verify(beerCache).evict(expectedBeerDTO.getId());
+    }
+
+    @Test
+    void whenUpdaterRestartsWithoutFlushThenLedgerIsReplayed() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        LedgerStockUpdater crashedStockUpdater = startUpdater();
+        crashedStockUpdater.increment(expectedBeerDTO.getId(), 10);
+        crashedStockUpdater.decrement(expectedBeerDTO.getId(), 3);
+
+        // sem stop(): simula a queda do processo depois de confirmar os movimentos
+        startUpdater();
+
+        verify(beerRepository).addToQuantities(Map.of(expectedBeerDTO.getId(), 7L), Map.of(expectedBeerDTO.getId(), 2L));
+        verify(checkpointRepository).save(new StockLedgerCheckpoint(1L, 1L));
+    }
+
+    private LedgerStockUpdater startUpdater() throws IOException {
+        LedgerStockUpdater ledgerStockUpdater = new LedgerStockUpdater(beerRepository, checkpointRepository, beerCache, stockHistory,
+                transactionManager, meterRegistry, directory, true, Duration.ofHours(1));
+        ledgerStockUpdater.start();
+        return ledgerStockUpdater;
+    }
+}
@@ -0,0 +1,76 @@
+package juan.beerstockapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+// mesmo cenário do BeerServiceConcurrencyTest, mas no modo otimista com retentativas
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:optimistic;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "beerstock.stock.mode=optimistic",
+        "beerstock.stock.optimistic.max-attempts=1000"
+})
+public class OptimisticStockUpdaterConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 25;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void whenConcurrentIncrementsConflictThenTheyAreRetriedAndNoneIsLost() throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name("OptimisticIncrement")
+                .max(500)
+                .quantity(0)
+                .build()
+                .toBeerDTO();
+        Long id = beerService.createBeer(beerDTO).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                        beerService.increment(id, 1);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(beerService.findByName(beerDTO.getName()).getQuantity(), is(equalTo(THREADS * OPERATIONS_PER_THREAD)));
+        double attempts = meterRegistry.get("beerstock.stock.attempts").counter().count();
+        double conflicts = meterRegistry.get("beerstock.stock.conflicts").counter().count();
+        assertThat(attempts - conflicts, is(equalTo((double) THREADS * OPERATIONS_PER_THREAD)));
+    }
+}
@@ -0,0 +1,120 @@
+package juan.beerstockapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.entity.Beer;
+import juan.beerstockapi.exception.BeerNotFoundException;
+import juan.beerstockapi.exception.BeerStockConflictException;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.mapper.BeerMapper;
+import juan.beerstockapi.repository.BeerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OptimisticStockUpdaterTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private StockHistoryService stockHistory;
+
+    private MeterRegistry meterRegistry;
+
+    private OptimisticStockUpdater optimisticStockUpdater;
+
+    private BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticStockUpdater = new OptimisticStockUpdater(beerRepository, stockHistory, transactionManager, meterRegistry,
+                MAX_ATTEMPTS, Duration.ofMillis(1), Duration.ofMillis(2));
+    }
+
+    @Test
+    void whenIncrementConflictsOnceThenItIsRetried() throws Exception {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        // cada tentativa lê a cerveja de novo do banco
+        when(beerRepository.findById(expectedBeerDTO.getId()))
+                .thenAnswer(invocation -> Optional.of(beerMapper.toModel(expectedBeerDTO)));
+        when(beerRepository.saveAndFlush(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Beer.class, expectedBeerDTO.getId()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Beer incrementedBeer = optimisticStockUpdater.increment(expectedBeerDTO.getId(), 5);
+
+        assertThat(incrementedBeer.getQuantity(), is(equalTo(expectedBeerDTO.getQuantity() + 5)));
+        assertThat(meterRegistry.get("beerstock.stock.conflicts").counter().count(), is(equalTo(1.0)));
+        assertThat(meterRegistry.get("beerstock.stock.attempts").counter().count(), is(equalTo(2.0)));
+    }
+
+    @Test
+    void whenConflictsExhaustTheAttemptsThenThrowException() {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
+
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
+        when(beerRepository.saveAndFlush(expectedBeer))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Beer.class, expectedBeerDTO.getId()));
+
+        assertThrows(BeerStockConflictException.class, () -> optimisticStockUpdater.decrement(expectedBeerDTO.getId(), 1));
+        verify(beerRepository, times(MAX_ATTEMPTS)).saveAndFlush(expectedBeer);
+    }
+
+    @Test
+    void whenIncrementIsGreatherThanMaxThenThrowException() {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
+
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
+
+        assertThrows(BeerStockExceededException.class, () -> optimisticStockUpdater.increment(expectedBeerDTO.getId(), 80));
+        verify(beerRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void whenDecrementIsLowerThanZeroThenThrowException() {
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
+
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
+
+        assertThrows(BeerStockEmptyException.class, () -> optimisticStockUpdater.decrement(expectedBeerDTO.getId(), 80));
+    }
+
+    @Test
+    void whenIncrementIsCalledWithInvalidIdThenThrowException() {
+        when(beerRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(BeerNotFoundException.class, () -> optimisticStockUpdater.increment(1L, 10));
+    }
+}
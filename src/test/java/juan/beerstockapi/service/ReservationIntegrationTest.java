@@ -0,0 +1,156 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.ReservationDTO;
+import juan.beerstockapi.dto.ReservationRequestDTO;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.BeerStockExceededException;
+import juan.beerstockapi.exception.BeerStockUnavailableException;
+import juan.beerstockapi.exception.ReservationNotFoundException;
+import juan.beerstockapi.repository.StockReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// reservas contra o H2 embarcado, com um tick curto para a expiração acontecer durante o teste
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reservations;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "beerstock.reservations.tick=PT0.05S"
+})
+public class ReservationIntegrationTest {
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Test
+    void whenReservationIsConfirmedThenReservedUnitsLeaveTheStock() throws Exception {
+        Long id = createBeer("ReservationConfirmed", 10);
+
+        ReservationDTO reservation = reservationService.reserve(id, request(4, null));
+        BeerDTO reservedBeer = beerService.findByName("ReservationConfirmed");
+        assertThat(reservedBeer.getQuantity(), is(equalTo(10)));
+        assertThat(reservedBeer.getAvailable(), is(equalTo(6)));
+
+        BeerDTO confirmedBeer = reservationService.confirm(reservation.getId());
+
+        assertThat(confirmedBeer.getQuantity(), is(equalTo(6)));
+        assertThat(confirmedBeer.getReserved(), is(equalTo(0)));
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.confirm(reservation.getId()));
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.release(reservation.getId()));
+    }
+
+    @Test
+    void whenReservationIsReleasedThenUnitsAreAvailableAgain() throws Exception {
+        Long id = createBeer("ReservationReleased", 10);
+        ReservationDTO reservation = reservationService.reserve(id, request(10, null));
+
+        assertThrows(BeerStockUnavailableException.class, () -> reservationService.reserve(id, request(1, null)));
+        // o decremento comum também não alcança as unidades reservadas
+        assertThrows(BeerStockEmptyException.class, () -> beerService.decrement(id, 1));
+
+        reservationService.release(reservation.getId());
+
+        BeerDTO beerDTO = beerService.findByName("ReservationReleased");
+        assertThat(beerDTO.getQuantity(), is(equalTo(10)));
+        assertThat(beerDTO.getAvailable(), is(equalTo(10)));
+    }
+
+    @Test
+    void whenNegativeIncrementWouldReachReservedUnitsThenItIsRejected() throws Exception {
+        Long id = createBeer("ReservationNegativeIncrement", 10);
+        reservationService.reserve(id, request(4, null));
+
+        // o controller já recusa quantidades não positivas; o update condicional também segura
+        assertThrows(BeerStockExceededException.class, () -> beerService.increment(id, -8));
+
+        BeerDTO beerDTO = beerService.findByName("ReservationNegativeIncrement");
+        assertThat(beerDTO.getQuantity(), is(equalTo(10)));
+        assertThat(beerDTO.getAvailable(), is(equalTo(6)));
+    }
+
+    @Test
+    void whenReservationIsNotConfirmedInTimeThenItExpires() throws Exception {
+        Long id = createBeer("ReservationExpired", 10);
+        ReservationDTO reservation = reservationService.reserve(id, request(3, 1L));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reservationRepository.existsById(reservation.getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertThat(reservationRepository.existsById(reservation.getId()), is(false));
+        assertThat(beerService.findByName("ReservationExpired").getAvailable(), is(equalTo(10)));
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.confirm(reservation.getId()));
+    }
+
+    @Test
+    void whenConcurrentReservationsExceedStockThenStockIsNeverOverbooked() throws Exception {
+        Long id = createBeer("ReservationConcurrent", 50);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                Callable<Object> operation = () -> {
+                    for (int i = 0; i < 20; i++) {
+                        try {
+                            reservationService.reserve(id, request(1, null));
+                            reserved.incrementAndGet();
+                        } catch (BeerStockUnavailableException e) {
+                            // estoque esgotado pelas outras threads
+                        }
+                    }
+                    return null;
+                };
+                futures.add(executor.submit(operation));
+            }
+            for (Future<Object> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(reserved.get(), is(equalTo(50)));
+        assertThat(beerService.findByName("ReservationConcurrent").getAvailable(), is(equalTo(0)));
+    }
+
+    private Long createBeer(String name, int quantity) throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name(name)
+                .max(100)
+                .quantity(quantity)
+                .build()
+                .toBeerDTO();
+        return beerService.createBeer(beerDTO).getId();
+    }
+
+    private static ReservationRequestDTO request(int quantity, Long ttlSeconds) {
+        return ReservationRequestDTO.builder()
+                .quantity(quantity)
+                .ttlSeconds(ttlSeconds)
+                .build();
+    }
+}
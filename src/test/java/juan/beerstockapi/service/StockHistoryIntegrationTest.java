@@ -0,0 +1,154 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.PointInTimeStockDTO;
+import juan.beerstockapi.dto.StockMovementDTO;
+import juan.beerstockapi.dto.StockMovementEntryDTO;
+import juan.beerstockapi.dto.StockMovementRequestDTO;
+import juan.beerstockapi.enums.StockMovementMode;
+import juan.beerstockapi.exception.StockMovementRejectedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// histórico contra o H2 embarcado; os snapshots são tirados pelo teste, sem atraso
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:history;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "beerstock.history.snapshot-delay=PT0S"
+})
+public class StockHistoryIntegrationTest {
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private StockHistoryService stockHistoryService;
+
+    @Test
+    void whenStockIsMovedThenEveryMovementIsListedInOrder() throws Exception {
+        Long id = createBeer("HistoryListed", 10);
+        beerService.increment(id, 5);
+        beerService.decrement(id, 3);
+        beerService.applyStockMovements(StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.BEST_EFFORT)
+                .movements(asList(
+                        StockMovementDTO.builder().id(id).delta(2).build(),
+                        StockMovementDTO.builder().id(id).delta(-500).build()))
+                .build());
+
+        List<Long> deltas = stockHistoryService.movements(id, null, null, null)
+                .stream()
+                .map(StockMovementEntryDTO::getDelta)
+                .collect(Collectors.toList());
+
+        // o movimento recusado do lote não entra no histórico
+        assertThat(deltas, contains(10L, 5L, -3L, 2L));
+    }
+
+    @Test
+    void whenStockIsAskedAtPastInstantsThenQuantityOfThatMomentIsReturned() throws Exception {
+        Long id = createBeer("HistoryPointInTime", 10);
+        Instant afterCreation = pause();
+        beerService.increment(id, 20);
+        Instant afterIncrement = pause();
+
+        stockHistoryService.takeSnapshots();
+        beerService.decrement(id, 7);
+        Instant afterDecrement = pause();
+
+        assertThat(stockHistoryService.stockAt(id, afterCreation).getQuantity(), is(equalTo(10L)));
+        assertThat(stockHistoryService.stockAt(id, afterIncrement).getQuantity(), is(equalTo(30L)));
+        PointInTimeStockDTO current = stockHistoryService.stockAt(id, afterDecrement);
+        assertThat(current.getQuantity(), is(equalTo(23L)));
+        // a consulta depois do snapshot parte dele e só soma o decremento
+        assertThat(current.getSnapshotAt(), is(notNullValue()));
+        assertThat(stockHistoryService.stockAt(id, Instant.EPOCH).getQuantity(), is(equalTo(0L)));
+        assertThat(stockHistoryService.stockAt(id, Instant.EPOCH).getSnapshotAt(), is(nullValue()));
+    }
+
+    @Test
+    void whenMovementsAreListedBetweenTwoInstantsThenTheyAddUpToTheStockDifference() throws Exception {
+        Long id = createBeer("HistoryRange", 10);
+        beerService.increment(id, 5);
+        Instant from = pause();
+        beerService.decrement(id, 3);
+        beerService.increment(id, 8);
+        Instant to = pause();
+        beerService.decrement(id, 1);
+
+        // mesmo intervalo (from, to] do stockAt: o movimento exatamente em from fica de fora
+        Instant fromMovement = stockHistoryService.movements(id, null, null, null).get(1).getOccurredAt();
+        List<Long> deltas = stockHistoryService.movements(id, from, to, null)
+                .stream()
+                .map(StockMovementEntryDTO::getDelta)
+                .collect(Collectors.toList());
+
+        assertThat(deltas, contains(-3L, 8L));
+        assertThat(stockHistoryService.stockAt(id, to).getQuantity() - stockHistoryService.stockAt(id, from).getQuantity(),
+                is(equalTo(deltas.stream().mapToLong(Long::longValue).sum())));
+        assertThat(stockHistoryService.movements(id, fromMovement, to, null).size(), is(equalTo(2)));
+    }
+
+    @Test
+    void whenSnapshotsAreTakenRepeatedlyThenTheyAccumulateTheMovements() throws Exception {
+        Long id = createBeer("HistorySnapshots", 5);
+        stockHistoryService.takeSnapshots();
+        beerService.increment(id, 4);
+        stockHistoryService.takeSnapshots();
+        beerService.decrement(id, 1);
+        stockHistoryService.takeSnapshots();
+
+        PointInTimeStockDTO current = stockHistoryService.stockAt(id, pause());
+
+        assertThat(current.getQuantity(), is(equalTo(8L)));
+        assertThat(current.getQuantity().intValue(), is(equalTo(beerService.findByName("HistorySnapshots").getQuantity())));
+    }
+
+    @Test
+    void whenAllOrNothingBatchIsRejectedThenNoMovementIsRecorded() throws Exception {
+        Long id = createBeer("HistoryRejected", 10);
+        StockMovementRequestDTO request = StockMovementRequestDTO.builder()
+                .mode(StockMovementMode.ALL_OR_NOTHING)
+                .movements(asList(
+                        StockMovementDTO.builder().id(id).delta(5).build(),
+                        StockMovementDTO.builder().id(id).delta(-50).build()))
+                .build();
+
+        assertThrows(StockMovementRejectedException.class, () -> beerService.applyStockMovements(request));
+
+        assertThat(stockHistoryService.movements(id, null, null, null).size(), is(equalTo(1)));
+    }
+
+    private Long createBeer(String name, int quantity) throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name(name)
+                .max(100)
+                .quantity(quantity)
+                .build()
+                .toBeerDTO();
+        return beerService.createBeer(beerDTO).getId();
+    }
+
+    // separa os instantes dos movimentos, que são gravados com o relógio do sistema
+    private static Instant pause() throws InterruptedException {
+        Thread.sleep(5);
+        Instant now = Instant.now();
+        Thread.sleep(5);
+        return now;
+    }
+}
@@ -0,0 +1,128 @@
+package juan.beerstockapi.service;
+
+import juan.beerstockapi.builder.BeerDTOBuilder;
+import juan.beerstockapi.dto.BeerDTO;
+import juan.beerstockapi.dto.BeerStockDTO;
+import juan.beerstockapi.dto.WarehouseStockDTO;
+import juan.beerstockapi.exception.BeerStockEmptyException;
+import juan.beerstockapi.exception.WarehouseAlreadyRegisteredException;
+import juan.beerstockapi.repository.BeerRepository;
+import juan.beerstockapi.repository.WarehouseStockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// estoque por depósito contra o H2 embarcado
+@SpringBootTest
+public class WarehouseStockIntegrationTest {
+
+    private static final int OPERATIONS = 200;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private WarehouseStockRepository warehouseStockRepository;
+
+    @Test
+    void whenStockIsMovedInEachWarehouseThenTotalsAddUp() throws Exception {
+        Long id = createBeer("WarehouseTotals");
+        beerService.addWarehouse(id, new WarehouseStockDTO("north", 50, 0));
+        beerService.addWarehouse(id, new WarehouseStockDTO("south", 50, 20));
+
+        beerService.incrementAt(id, "north", 30);
+        beerService.decrementAt(id, "south", 5);
+        beerService.incrementAt(id, BeerService.DEFAULT_WAREHOUSE, 5);
+
+        BeerStockDTO beerStockDTO = beerService.stockByWarehouse(id);
+        assertThat(beerStockDTO.getWarehouses(), contains(
+                new WarehouseStockDTO(BeerService.DEFAULT_WAREHOUSE, 100, 15),
+                new WarehouseStockDTO("north", 50, 30),
+                new WarehouseStockDTO("south", 50, 15)));
+        assertThat(beerStockDTO.getTotal(), is(equalTo(60)));
+        // o banco é compartilhado com outros testes, então só dá para conferir que os depósitos entram na soma
+        assertThat(beerRepository.sumQuantity(), is(greaterThanOrEqualTo(60L)));
+        // o endpoint sem depósito continua vendo só o principal
+        assertThat(beerService.findByName("WarehouseTotals").getQuantity(), is(equalTo(15)));
+    }
+
+    @Test
+    void whenWarehouseStockWouldGoBelowZeroThenItIsRejected() throws Exception {
+        Long id = createBeer("WarehouseEmpty");
+        beerService.addWarehouse(id, new WarehouseStockDTO("north", 50, 3));
+
+        assertThrows(BeerStockEmptyException.class, () -> beerService.decrementAt(id, "north", 4));
+        assertThrows(WarehouseAlreadyRegisteredException.class, () -> beerService.addWarehouse(id, new WarehouseStockDTO("north", 50, 0)));
+        assertThat(beerService.stockByWarehouse(id).getWarehouses().get(1).getQuantity(), is(equalTo(3)));
+    }
+
+    @Test
+    void whenWarehousesAreUpdatedConcurrentlyThenNoMovementIsLost() throws Exception {
+        Long id = createBeer("WarehouseConcurrent");
+        beerService.addWarehouse(id, new WarehouseStockDTO("north", 500, 0));
+        beerService.addWarehouse(id, new WarehouseStockDTO("south", 500, 0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (String warehouse : List.of("north", "south", "north", "south")) {
+                Callable<Object> operation = () -> {
+                    for (int i = 0; i < OPERATIONS / 2; i++) {
+                        beerService.incrementAt(id, warehouse, 1);
+                    }
+                    return null;
+                };
+                futures.add(executor.submit(operation));
+            }
+            for (Future<Object> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        BeerStockDTO beerStockDTO = beerService.stockByWarehouse(id);
+        assertThat(beerStockDTO.getWarehouses().get(1).getQuantity(), is(equalTo(OPERATIONS)));
+        assertThat(beerStockDTO.getWarehouses().get(2).getQuantity(), is(equalTo(OPERATIONS)));
+    }
+
+    @Test
+    void whenBeerIsDeletedThenItsWarehouseStockIsDeleted() throws Exception {
+        Long id = createBeer("WarehouseDeleted");
+        beerService.addWarehouse(id, new WarehouseStockDTO("north", 50, 3));
+
+        beerService.deleteById(id);
+
+        assertThat(warehouseStockRepository.findByBeerIdOrderByWarehouseAsc(id), is(empty()));
+    }
+
+    private Long createBeer(String name) throws Exception {
+        BeerDTO beerDTO = BeerDTOBuilder.builder()
+                .id(null)
+                .name(name)
+                .max(100)
+                .quantity(10)
+                .build()
+                .toBeerDTO();
+        return beerService.createBeer(beerDTO).getId();
+    }
+}
@@ -0,0 +1,87 @@
+package juan.beerstockapi.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    @Test
+    void whenDeadlineIsReachedThenItemIsReturnedAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.schedule("a", 25);
+
+        assertThat(wheel.advanceTo(29), is(empty()));
+        assertThat(wheel.advanceTo(30), contains("a"));
+        assertThat(wheel.size(), is(equalTo(0)));
+    }
+
+    @Test
+    void whenDeadlineAlreadyPassedThenItemIsReturnedOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.advanceTo(1000);
+        wheel.schedule("late", 500);
+
+        assertThat(wheel.advanceTo(1000), contains("late"));
+    }
+
+    // prazos espalhados por todos os níveis, conferidos contra o tick esperado de cada item
+    @Test
+    void whenDeadlinesSpanEveryLevelThenEachItemExpiresOnItsOwnTick() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1, 0);
+        Random random = new Random(42);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        long[] horizons = {64, 4096, 262_144, 20_000_000};
+        for (int i = 0; i < 4000; i++) {
+            long deadline = 1 + (long) (random.nextDouble() * horizons[i % horizons.length]);
+            deadlines.put(i, deadline);
+            wheel.schedule(i, deadline);
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        long now = 0;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(1000);
+            for (Integer item : wheel.advanceTo(now)) {
+                long deadline = deadlines.get(item);
+                // cada avanço cobre vários ticks: o item tem que vencer dentro da janela avançada
+                assertThat(deadline <= now, is(true));
+                expired.add(item);
+            }
+            for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+                if (entry.getValue() <= now) {
+                    assertThat(expired.contains(entry.getKey()), is(true));
+                }
+            }
+            deadlines.entrySet().removeIf(entry -> expired.contains(entry.getKey()));
+            expired.clear();
+        }
+        assertThat(deadlines.isEmpty(), is(true));
+    }
+
+    @Test
+    void whenItemsAreScheduledWhileAdvancingThenLaterDeadlinesStillCascade() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        for (long now = 0; now < 15_000; now++) {
+            for (Long item : wheel.advanceTo(now)) {
+                assertThat(now, is(equalTo(item + 5000)));
+            }
+            if (now < 10_000 && now % 7 == 0) {
+                wheel.schedule(now, now + 5000);
+            }
+        }
+        assertThat(wheel.size(), is(equalTo(0)));
+    }
+}